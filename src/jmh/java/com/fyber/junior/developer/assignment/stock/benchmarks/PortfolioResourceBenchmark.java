@@ -0,0 +1,146 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.FyberStockAppApplication;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the read routes over HTTP with many concurrent callers, with the requests run on
+ * the async request pool or on the tomcat threads. Run it with more callers than tomcat threads, like
+ * -Djmh.args="PortfolioResourceBenchmark -t 64", to see how the two modes scale with the concurrency.
+ * The responses rejected with a 503 by the saturated async pool are counted apart from the successful ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class PortfolioResourceBenchmark {
+
+    private static final int POSITIONS = 100;
+
+    @Param({"true", "false"})
+    public boolean async;
+
+    @Param({"8"})
+    public int tomcatThreads;
+
+    @Param({"200"})
+    public int queueCapacity;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private String valueAtDateUrl;
+    private String stableStockUrl;
+
+    /**
+     * The responses of a single caller thread, summed by JMH over the callers.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long ok;
+        public long unavailable;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            ok = 0;
+            unavailable = 0;
+        }
+    }
+
+    @Setup
+    public void startServer() throws IOException {
+        int symbols = POSITIONS + 100;
+        directory = Files.createTempDirectory("portfolio-resource-benchmark");
+        Path stocksFile = directory.resolve("stocks.csv");
+        Path supportedStocksFile = directory.resolve("supportedStocks.txt");
+        SyntheticMarketData.writePriceFile(stocksFile, symbols, 250, 42);
+        SyntheticMarketData.writeSupportedStocksFile(supportedStocksFile, symbols);
+
+        //the keep alive cache of HttpURLConnection keeps only 5 idle connections per server by default
+        System.setProperty("http.maxConnections", "1024");
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        context = new SpringApplicationBuilder(FyberStockAppApplication.class)
+                .run("--server.port=0",
+                        "--server.tomcat.max-threads=" + tomcatThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--stocks.history.file=" + stocksFile,
+                        "--stocks.supported.file=" + supportedStocksFile,
+                        "--portfolio.async.enabled=" + async,
+                        "--portfolio.async.queue-capacity=" + queueCapacity,
+                        "--logging.level.root=WARN");
+        long clientId = context.getBean(PortfolioService.class)
+                .addNewClientPortfolio(SyntheticMarketData.portfolio(POSITIONS, 42));
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + "/api/portfolio";
+        valueAtDateUrl = baseUrl + "/value/" + clientId + "?date=2010-03-31";
+        stableStockUrl = baseUrl + "/stable/" + clientId + "?from=2010-03-01&to=2010-03-31";
+    }
+
+    @TearDown
+    public void stopServer() {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Benchmark
+    public int portfolioValueAtDate(Responses responses) throws IOException {
+        return get(valueAtDateUrl, responses);
+    }
+
+    @Benchmark
+    public int mostStableStockBetweenDates(Responses responses) throws IOException {
+        return get(stableStockUrl, responses);
+    }
+
+    private static int get(String url, Responses responses) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        int status = connection.getResponseCode();
+
+        //the body is read to the end, so the connection is kept alive for the next request
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[4096];
+            while (body != null && body.read(buffer) >= 0) {
+                //discarded
+            }
+        }
+
+        if (status == HttpURLConnection.HTTP_OK) {
+            responses.ok++;
+        } else if (status == HttpURLConnection.HTTP_UNAVAILABLE) {
+            responses.unavailable++;
+        } else {
+            throw new IllegalStateException("GET " + url + " failed with status " + status);
+        }
+        return status;
+    }
+}
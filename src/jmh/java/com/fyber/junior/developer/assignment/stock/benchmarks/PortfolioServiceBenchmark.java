@@ -0,0 +1,130 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.FyberStockAppApplication;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioValueCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the analytics methods of the {@link PortfolioService} end to end, including loading the portfolio
+ * from an in memory H2 database, over a synthetic price file and a client with the given number of positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortfolioServiceBenchmark {
+
+    private static final LocalDate FROM = LocalDate.of(2010, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2010, 3, 31);
+
+    @Param({"10", "1000"})
+    public int positions;
+
+    @Param({"250"})
+    public int days;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private PortfolioService portfolioService;
+    private PortfolioValueCache portfolioValueCache;
+    private long clientId;
+
+    @Setup
+    public void startService() throws IOException {
+        //the market has more symbols than the client, so there are stocks to recommend
+        int symbols = positions + 100;
+        directory = Files.createTempDirectory("portfolio-service-benchmark");
+        Path stocksFile = directory.resolve("stocks.csv");
+        Path supportedStocksFile = directory.resolve("supportedStocks.txt");
+        SyntheticMarketData.writePriceFile(stocksFile, symbols, days, 42);
+        SyntheticMarketData.writeSupportedStocksFile(supportedStocksFile, symbols);
+
+        //passed as command line arguments, which override application.properties
+        context = new SpringApplicationBuilder(FyberStockAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--stocks.history.file=" + stocksFile,
+                        "--stocks.supported.file=" + supportedStocksFile,
+                        "--logging.level.root=WARN");
+        portfolioService = context.getBean(PortfolioService.class);
+        portfolioValueCache = context.getBean(PortfolioValueCache.class);
+        clientId = portfolioService.addNewClientPortfolio(SyntheticMarketData.portfolio(positions, 42));
+    }
+
+    @TearDown
+    public void stopService() {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Benchmark
+    public double portfolioValueCached() {
+        return portfolioService.getPortfolioValue(clientId);
+    }
+
+    @Benchmark
+    public double portfolioValueUncached() {
+        portfolioValueCache.invalidateAfterCommit(clientId);
+        return portfolioService.getPortfolioValue(clientId);
+    }
+
+    @Benchmark
+    public double portfolioValueAtDate() {
+        return portfolioService.getPortfolioValueAt(clientId, TO);
+    }
+
+    @Benchmark
+    public String mostPerformingStock() {
+        return portfolioService.mostPerformingStock(clientId, 5);
+    }
+
+    @Benchmark
+    public String mostPerformingStockBetweenDates() {
+        return portfolioService.mostPerformingStock(clientId, FROM, TO);
+    }
+
+    @Benchmark
+    public String mostStableStock() {
+        return portfolioService.mostStableStock(clientId, 5);
+    }
+
+    @Benchmark
+    public String mostStableStockBetweenDates() {
+        return portfolioService.mostStableStock(clientId, FROM, TO);
+    }
+
+    @Benchmark
+    public String bestStock() {
+        return portfolioService.bestStock(clientId);
+    }
+
+    @Benchmark
+    public List<String> bestTenStocks() {
+        return portfolioService.bestStocks(clientId, 10);
+    }
+}
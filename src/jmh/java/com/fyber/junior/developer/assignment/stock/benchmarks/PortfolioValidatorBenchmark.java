@@ -0,0 +1,71 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocks;
+import com.fyber.junior.developer.assignment.stock.business.validator.PortfolioValidator;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validating a valid portfolio, and a portfolio where every tenth position is invalid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortfolioValidatorBenchmark {
+
+    @Param({"10", "10000"})
+    public int positions;
+
+    private SupportedStocks supportedStocks;
+    private List<Stock> validPortfolio;
+    private List<Stock> invalidPortfolio;
+
+    @Setup
+    public void createPortfolios() {
+        List<String> symbols = new ArrayList<>(positions);
+        for (int i = 0; i < positions; i++) {
+            symbols.add(SyntheticMarketData.symbol(i));
+        }
+        supportedStocks = new SupportedStocks(symbols);
+        validPortfolio = SyntheticMarketData.portfolio(positions, 42);
+
+        invalidPortfolio = SyntheticMarketData.portfolio(positions, 42);
+        for (int i = 0; i < positions; i += 10) {
+            invalidPortfolio.get(i).setStockAmount(0);
+        }
+    }
+
+    @Benchmark
+    public List<Stock> validPortfolio() {
+        PortfolioValidator.validatePortfolio(validPortfolio, false, supportedStocks);
+        return validPortfolio;
+    }
+
+    @Benchmark
+    public int invalidPortfolio() {
+        try {
+            PortfolioValidator.validatePortfolio(invalidPortfolio, false, supportedStocks);
+            throw new IllegalStateException("the portfolio is expected to be invalid");
+        } catch (PortfolioValidationException e) {
+            return e.getViolations().size();
+        }
+    }
+}
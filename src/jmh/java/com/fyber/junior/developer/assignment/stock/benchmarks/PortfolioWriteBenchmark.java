@@ -0,0 +1,112 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.FyberStockAppApplication;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of portfolio updates by many concurrent writers, all of them writing the same client
+ * or every one of them writing a client of its own. Run it with different amounts of writers,
+ * like -Djmh.args="PortfolioWriteBenchmark -t 8", to see how the per client lock scales with the contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PortfolioWriteBenchmark {
+
+    private static final int POSITIONS = 10;
+    private static final int MAX_WRITERS = 256;
+
+    @Param({"true", "false"})
+    public boolean contended;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private PortfolioService portfolioService;
+    private long[] clientIds;
+    private final AtomicInteger writers = new AtomicInteger();
+
+    /**
+     * The client and the portfolio a single writer thread updates.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        private long clientId;
+        private List<Stock> portfolio;
+        private int write;
+
+        @Setup
+        public void pickClient(PortfolioWriteBenchmark benchmark) {
+            int writer = benchmark.writers.getAndIncrement();
+            clientId = benchmark.clientIds[benchmark.contended ? 0 : writer % MAX_WRITERS];
+            portfolio = SyntheticMarketData.portfolio(POSITIONS, writer);
+        }
+    }
+
+    @Setup
+    public void startService() throws IOException {
+        int symbols = POSITIONS + 100;
+        directory = Files.createTempDirectory("portfolio-write-benchmark");
+        Path stocksFile = directory.resolve("stocks.csv");
+        Path supportedStocksFile = directory.resolve("supportedStocks.txt");
+        SyntheticMarketData.writePriceFile(stocksFile, symbols, 250, 42);
+        SyntheticMarketData.writeSupportedStocksFile(supportedStocksFile, symbols);
+
+        context = new SpringApplicationBuilder(FyberStockAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--stocks.history.file=" + stocksFile,
+                        "--stocks.supported.file=" + supportedStocksFile,
+                        "--logging.level.root=WARN");
+        portfolioService = context.getBean(PortfolioService.class);
+        clientIds = new long[contended ? 1 : MAX_WRITERS];
+        for (int i = 0; i < clientIds.length; i++) {
+            clientIds[i] = portfolioService.addNewClientPortfolio(SyntheticMarketData.portfolio(POSITIONS, i));
+        }
+    }
+
+    @TearDown
+    public void stopService() {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Benchmark
+    public void updateClientPortfolio(Writer writer) {
+
+        //alternating the amounts, so every write changes the portfolio
+        int amount = 1 + (writer.write++ & 1);
+        for (Stock stock : writer.portfolio) {
+            stock.setStockAmount(amount);
+        }
+        portfolioService.updateClientPortfolio(writer.clientId, writer.portfolio);
+    }
+}
@@ -0,0 +1,122 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.business.services.PositionIndex;
+import com.fyber.junior.developer.assignment.stock.model.entity.Client;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the memory a position takes in the {@link PositionIndex} and as a JPA entity of a loaded client,
+ * printed when the benchmark starts, and how long reading a client's positions from the index takes.
+ * The memory is measured as the growth of the used heap, after a full collection, and of the direct buffers
+ * while the positions are held. The entities hold a string of their own for every symbol, as read by hibernate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PositionIndexBenchmark {
+
+    private static final int SYMBOLS = 500;
+
+    @Param({"100000"})
+    public int clients;
+
+    @Param({"10"})
+    public int positions;
+
+    private PositionIndex positionIndex;
+
+    @Setup
+    public void measureMemory() {
+        Random random = new Random(42);
+        long heapBefore = usedHeap();
+        List<Client> loadedClients = new ArrayList<>(clients);
+        for (int client = 0; client < clients; client++) {
+            Client loadedClient = new Client();
+            loadedClient.setClientId(client);
+            List<Stock> stocks = new ArrayList<>();
+            for (int position = 0; position < positions; position++) {
+                Stock stock = new Stock(new String(SyntheticMarketData.symbol(random.nextInt(SYMBOLS))));
+                stock.setStockId((long) client * positions + position);
+                stock.setClientId(client);
+                stock.setStockAmount(1 + random.nextInt(1000));
+                stocks.add(stock);
+            }
+            loadedClient.setStocksList(stocks);
+            loadedClients.add(loadedClient);
+        }
+        long entityBytes = usedHeap() - heapBefore;
+        print("entities", entityBytes, 0, loadedClients.size());
+
+        //the index resolves the same symbols, so the strings are not counted for it
+        String[] symbols = new String[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            symbols[i] = SyntheticMarketData.symbol(i);
+        }
+        loadedClients.clear();
+        random = new Random(42);
+        heapBefore = usedHeap();
+        long directBefore = directBytes();
+        positionIndex = new PositionIndex(null, new SimpleMeterRegistry(), true);
+        for (int client = 0; client < clients; client++) {
+            List<StockPosition> clientPositions = new ArrayList<>(positions);
+            for (int position = 0; position < positions; position++) {
+                clientPositions.add(new StockPosition(client, symbols[random.nextInt(SYMBOLS)],
+                        1 + random.nextInt(1000)));
+            }
+            positionIndex.put(client, clientPositions);
+        }
+        print("position index", usedHeap() - heapBefore, directBytes() - directBefore, positionIndex.clientCount());
+    }
+
+    private void print(String holder, long heapBytes, long directBytes, int heldClients) {
+        long heldPositions = (long) heldClients * positions;
+        System.out.printf("%n%s: %d positions, %.1f bytes per position on the heap and %.1f off it%n", holder,
+                heldPositions, (double) heapBytes / heldPositions, (double) directBytes / heldPositions);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public List<StockPosition> clientPositions() {
+        return positionIndex.positions(ThreadLocalRandom.current().nextInt(clients));
+    }
+}
@@ -0,0 +1,72 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryBinaryFile;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryCsvParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the price history snapshot from a synthetic csv file and from its binary conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceHistoryBenchmark {
+
+    @Param({"100", "1000"})
+    public int symbols;
+
+    @Param({"250"})
+    public int days;
+
+    @Param({"8"})
+    public int windowDays;
+
+    private Path directory;
+    private Path csvFile;
+    private Path binaryFile;
+
+    @Setup
+    public void writeFiles() throws IOException {
+        directory = Files.createTempDirectory("price-history-benchmark");
+        csvFile = directory.resolve("stocks.csv");
+        binaryFile = directory.resolve("stocks.bin");
+        SyntheticMarketData.writePriceFile(csvFile, symbols, days, 42);
+        PriceHistoryBinaryFile.write(PriceHistoryCsvParser.parse(csvFile, 0), binaryFile);
+    }
+
+    @TearDown
+    public void deleteFiles() {
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Benchmark
+    public PriceHistory parseCsv() throws IOException {
+        return PriceHistoryCsvParser.parse(csvFile, windowDays);
+    }
+
+    @Benchmark
+    public PriceHistory mapBinary() throws IOException {
+        return PriceHistoryBinaryFile.map(binaryFile, windowDays);
+    }
+}
@@ -0,0 +1,121 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.FyberStockAppApplication;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceTick;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many ticks a second the {@link LivePriceBook} ingests from concurrent feeds, with the given amount
+ * of tracked clients whose live values every tick of their stocks changes. Every client holds 10 of the stocks,
+ * so a stock has clients * 10 / symbols holders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PriceTickBenchmark {
+
+    private static final int POSITIONS = 10;
+
+    @Param({"0", "10000"})
+    public int clients;
+
+    @Param({"500"})
+    public int symbols;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private LivePriceBook livePriceBook;
+
+    /**
+     * The ticks of a single feed, every feed has its own random walk of the prices.
+     */
+    @State(Scope.Thread)
+    public static class Feed {
+        private Random random;
+        private String[] symbols;
+
+        @Setup
+        public void startFeed(PriceTickBenchmark benchmark) {
+            random = new Random(Thread.currentThread().getId());
+            symbols = new String[benchmark.symbols];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = SyntheticMarketData.symbol(i);
+            }
+        }
+    }
+
+    @Setup
+    public void startService() throws IOException {
+        directory = Files.createTempDirectory("price-tick-benchmark");
+        Path stocksFile = directory.resolve("stocks.csv");
+        Path supportedStocksFile = directory.resolve("supportedStocks.txt");
+        SyntheticMarketData.writePriceFile(stocksFile, symbols, 10, 42);
+        SyntheticMarketData.writeSupportedStocksFile(supportedStocksFile, symbols);
+
+        context = new SpringApplicationBuilder(FyberStockAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--stocks.history.file=" + stocksFile,
+                        "--stocks.supported.file=" + supportedStocksFile,
+                        "--logging.level.root=WARN");
+        livePriceBook = context.getBean(LivePriceBook.class);
+
+        //tracking the clients, their stocks are spread over all of the symbols
+        PortfolioService portfolioService = context.getBean(PortfolioService.class);
+        Random random = new Random(42);
+        for (int client = 0; client < clients; client++) {
+            List<Stock> portfolio = new ArrayList<>(POSITIONS);
+            for (int position = 0; position < POSITIONS; position++) {
+                Stock stock = new Stock(SyntheticMarketData.symbol((client * POSITIONS + position) % symbols));
+                stock.setStockAmount(1 + random.nextInt(1000));
+                portfolio.add(stock);
+            }
+            portfolioService.getLivePortfolioValue(portfolioService.addNewClientPortfolio(portfolio));
+        }
+    }
+
+    @TearDown
+    public void stopService() {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Benchmark
+    public boolean acceptTick(Feed feed) {
+        String symbol = feed.symbols[feed.random.nextInt(feed.symbols.length)];
+
+        //stamped with the current time, so the ticks of all of the feeds become the latest price
+        return livePriceBook.accept(new PriceTick(symbol, 50 + feed.random.nextDouble(), System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,62 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and writing a portfolio as the JSON body of the REST API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockJsonBenchmark {
+
+    @Param({"10", "10000"})
+    public int positions;
+
+    private ObjectReader portfolioReader;
+    private ObjectWriter portfolioWriter;
+    private List<Stock> portfolio;
+    private byte[] portfolioJson;
+
+    @Setup
+    public void createPortfolio() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        TypeReference<List<Stock>> portfolioType = new TypeReference<List<Stock>>(){};
+        portfolioReader = objectMapper.readerFor(portfolioType);
+        portfolioWriter = objectMapper.writerFor(portfolioType);
+        portfolio = SyntheticMarketData.portfolio(positions, 42);
+        portfolioJson = portfolioWriter.writeValueAsBytes(portfolio);
+    }
+
+    @Benchmark
+    public List<Stock> readPortfolio() throws IOException {
+        return portfolioReader.readValue(portfolioJson);
+    }
+
+    @Benchmark
+    public byte[] writePortfolio() throws IOException {
+        return portfolioWriter.writeValueAsBytes(portfolio);
+    }
+}
@@ -0,0 +1,89 @@
+package com.fyber.junior.developer.assignment.stock.benchmarks;
+
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates seeded synthetic price files and portfolios for the benchmarks, so every run measures the same data.
+ */
+final class SyntheticMarketData {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2010, 1, 1);
+
+    private SyntheticMarketData() {
+    }
+
+    /**
+     * @return the index'th four letter symbol: AAAA, BAAA, ...
+     */
+    static String symbol(int index) {
+        char[] symbol = new char[4];
+        for (int i = 0; i < symbol.length; i++) {
+            symbol[i] = (char) ('A' + index % 26);
+            index /= 26;
+        }
+        return new String(symbol);
+    }
+
+    /**
+     * Writes a random walk of closing prices for every symbol, in the "symbol,close,d.M.yyyy" format,
+     * with the symbols interleaved day by day.
+     */
+    static void writePriceFile(Path file, int symbols, int days, long seed) throws IOException {
+        Random random = new Random(seed);
+        double[] closes = new double[symbols];
+        for (int i = 0; i < symbols; i++) {
+            closes[i] = 10 + random.nextInt(500);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int day = 0; day < days; day++) {
+                LocalDate date = FIRST_DAY.plusDays(day);
+                String formattedDate = date.getDayOfMonth() + "." + date.getMonthValue() + "." + date.getYear();
+                for (int i = 0; i < symbols; i++) {
+                    closes[i] = Math.max(1, closes[i] + random.nextGaussian());
+                    writer.write(symbol(i));
+                    writer.write(',');
+                    writer.write(String.format(Locale.ROOT, "%.2f", closes[i]));
+                    writer.write(',');
+                    writer.write(formattedDate);
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the supported stocks file with the first symbols, comma separated.
+     */
+    static void writeSupportedStocksFile(Path file, int symbols) throws IOException {
+        StringBuilder supportedStocks = new StringBuilder();
+        for (int i = 0; i < symbols; i++) {
+            supportedStocks.append(i == 0 ? "" : ",").append(symbol(i));
+        }
+        Files.write(file, supportedStocks.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return a valid portfolio of the given number of distinct symbols, with random amounts
+     */
+    static List<Stock> portfolio(int positions, long seed) {
+        Random random = new Random(seed);
+        List<Stock> portfolio = new ArrayList<>(positions);
+        for (int i = 0; i < positions; i++) {
+            Stock stock = new Stock(symbol(i));
+            stock.setStockAmount(1 + random.nextInt(1000));
+            portfolio.add(stock);
+        }
+        return portfolio;
+    }
+}
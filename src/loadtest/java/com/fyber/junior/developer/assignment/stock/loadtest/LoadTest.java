@@ -0,0 +1,251 @@
+package com.fyber.junior.developer.assignment.stock.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fyber.junior.developer.assignment.stock.FyberStockAppApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * A load test of the REST API, run with: mvn -Ploadtest -DskipTests verify -Dloadtest.args="--rate=500"
+ * It starts the application in process with an in memory H2 database, unless "--target" points to a running one,
+ * creates the synthetic clients, and sends a mix of requests at a fixed rate.
+ * The requests are sent on a fixed schedule and every latency is measured from the request's scheduled send time,
+ * not from the time it was actually sent, so when the application stalls the requests that waited behind the stall
+ * are reported with their waiting time instead of being left out (the "coordinated omission" of closed loop tests).
+ * The route, client and body of every request are derived from the seed and the request's number only,
+ * so runs with the same options send the same requests.
+ * The report is printed and written to target/loadtest-report.txt together with the full latency distributions,
+ * and the process exits with 1 when a "--slo.pNN-ms" objective was missed.
+ */
+public final class LoadTest {
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RouteLatencies latencies = new RouteLatencies();
+    private SyntheticClients syntheticClients;
+    private long[] clientIds;
+
+    private LoadTest(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        //the keep alive cache of HttpURLConnection keeps only 5 idle connections per server by default
+        System.setProperty("http.maxConnections", String.valueOf(options.getThreads()));
+
+        ConfigurableApplicationContext context = options.getTarget() == null ? startApplication(options) : null;
+        boolean objectivesMet;
+        try {
+            String baseUrl = context == null ? options.getTarget() :
+                    "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            objectivesMet = new LoadTest(options, baseUrl).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(objectivesMet ? 0 : 1);
+    }
+
+    /**
+     * Starts the application on a random port with an in memory database, the options that were not
+     * the load test's own override these defaults.
+     */
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options) {
+        List<String> args = new ArrayList<>(options.getApplicationArgs());
+        for (String defaultArg : Arrays.asList("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                "--logging.level.root=WARN")) {
+            String name = defaultArg.substring(0, defaultArg.indexOf('=') + 1);
+            if (args.stream().noneMatch(arg -> arg.startsWith(name))) {
+                args.add(defaultArg);
+            }
+        }
+
+        //devtools would restart the application in a new class loader, calling this main method again
+        //with the application's arguments only
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(FyberStockAppApplication.class).run(args.toArray(new String[0]));
+    }
+
+    private boolean run() throws Exception {
+        List<String> symbols = Arrays.stream(new String(Files.readAllBytes(options.getSupportedStocksFile()),
+                StandardCharsets.UTF_8).split(","))
+                .map(String::trim)
+                .filter(symbol -> !symbol.isEmpty())
+                .collect(Collectors.toList());
+        syntheticClients = new SyntheticClients(symbols);
+        createClients();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long requests = (long) options.getRate() * (options.getWarmupSeconds() + options.getDurationSeconds());
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measurementStartNanos = startNanos + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long measurementEndNanos = startNanos + requests * intervalNanos;
+        AtomicLong nextRequest = new AtomicLong();
+        AtomicLong lastResponseNanos = new AtomicLong(measurementEndNanos);
+
+        System.out.printf(Locale.ROOT, "Sending %d requests/s for %d s after %d s of warmup, from %d threads, " +
+                        "to %d clients of %s, mix %s, seed %d%n", options.getRate(), options.getDurationSeconds(),
+                options.getWarmupSeconds(), options.getThreads(), clientIds.length, baseUrl, options.getMix(),
+                options.getSeed());
+
+        ExecutorService threads = Executors.newFixedThreadPool(options.getThreads());
+        for (int i = 0; i < options.getThreads(); i++) {
+            threads.execute(() -> {
+                for (long request = nextRequest.getAndIncrement(); request < requests;
+                     request = nextRequest.getAndIncrement()) {
+                    long scheduledNanos = startNanos + request * intervalNanos;
+                    for (long waitNanos = scheduledNanos - System.nanoTime(); waitNanos > 0;
+                         waitNanos = scheduledNanos - System.nanoTime()) {
+                        LockSupport.parkNanos(waitNanos);
+                    }
+
+                    SplittableRandom random = new SplittableRandom(options.getSeed() + 1 + request);
+                    Route route = options.getMix().pick(random);
+                    boolean succeeded = send(route, random);
+                    long responseNanos = System.nanoTime();
+
+                    if (scheduledNanos >= measurementStartNanos) {
+                        latencies.record(route, responseNanos - scheduledNanos, succeeded);
+                        lastResponseNanos.accumulateAndGet(responseNanos, Math::max);
+                    }
+                }
+            });
+        }
+        threads.shutdown();
+        threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        //the throughput is the measured responses over the time they took, which is longer than the
+        //measurement when the application fell behind the schedule
+        double measuredSeconds = (lastResponseNanos.get() - measurementStartNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        boolean objectivesMet = latencies.report(System.out, measuredSeconds, options.getLatencyObjectives());
+
+        Files.createDirectories(options.getReport().toAbsolutePath().getParent());
+        try (PrintStream report = new PrintStream(Files.newOutputStream(options.getReport()), true, "UTF-8")) {
+            report.printf(Locale.ROOT, "rate=%d duration=%d warmup=%d threads=%d clients=%d mix=%s seed=%d%n%n",
+                    options.getRate(), options.getDurationSeconds(), options.getWarmupSeconds(), options.getThreads(),
+                    clientIds.length, options.getMix(), options.getSeed());
+            latencies.report(report, measuredSeconds, options.getLatencyObjectives());
+            latencies.printDistributions(report);
+        }
+        System.out.println("The report and the latency distributions were written to " + options.getReport());
+        return objectivesMet;
+    }
+
+    /**
+     * Creates the synthetic clients with one import request, before the load starts.
+     */
+    private void createClients() throws IOException {
+        SplittableRandom random = new SplittableRandom(options.getSeed());
+        StringBuilder portfolios = new StringBuilder();
+        for (int i = 0; i < options.getClients(); i++) {
+            portfolios.append(syntheticClients.portfolio(i, random)).append('\n');
+        }
+
+        HttpURLConnection connection = open("POST", "/api/portfolio/import", "application/x-ndjson");
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(portfolios.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IllegalStateException("creating the clients failed with status " + connection.getResponseCode());
+        }
+
+        clientIds = new long[options.getClients()];
+        try (BufferedReader results = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = results.readLine(); line != null; line = results.readLine()) {
+                JsonNode result = objectMapper.readTree(line);
+                if (!result.hasNonNull("clientId")) {
+                    throw new IllegalStateException("creating a client failed: " + line);
+                }
+                clientIds[result.get("index").asInt()] = result.get("clientId").asLong();
+            }
+        }
+    }
+
+    /**
+     * @return true if the response status is 2xx
+     */
+    private boolean send(Route route, SplittableRandom random) {
+        int clientIndex = random.nextInt(clientIds.length);
+        String body;
+        switch (route) {
+            case CREATE:
+            case REPLACE:
+                body = syntheticClients.portfolio(clientIndex, random);
+                break;
+            case UPDATE:
+                body = syntheticClients.coreStocksUpdate(clientIndex, random);
+                break;
+            default:
+                body = null;
+        }
+
+        try {
+            HttpURLConnection connection = open(route.method(), route.path(clientIds[clientIndex], options.getPastDays()),
+                    body == null ? null : "application/json");
+            if (body != null) {
+                try (OutputStream requestBody = connection.getOutputStream()) {
+                    requestBody.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+
+            //reading the whole response returns the connection to the keep alive cache
+            drain(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+            return status / 100 == 2;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private HttpURLConnection open(String method, String path, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(10));
+        connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(60));
+        if (contentType != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+        }
+        return connection;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in != null) {
+            try (InputStream response = in) {
+                byte[] buffer = new byte[4096];
+                while (response.read(buffer) >= 0) {
+                    //discarding the response
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.fyber.junior.developer.assignment.stock.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The "--name=value" options of the load test. The options that are not the load test's own
+ * are passed to the application when the load test starts it, like "--stocks.history.file=stocks.bin".
+ */
+final class LoadTestOptions {
+
+    static final String DEFAULT_MIX = "create:2,replace:5,update:8,value:40,performance:15,stable:15,best:15";
+    private static final String SUPPORTED_STOCKS_FILE_OPTION = "stocks.supported.file";
+    private static final String SLO_OPTION_PREFIX = "slo.";
+
+    private int rate = 200;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 10;
+    private int threads = 64;
+    private int clients = 1000;
+    private long seed = 42;
+    private int pastDays = 5;
+    private RouteMix mix = new RouteMix(DEFAULT_MIX);
+    private String target;
+    private Path report = Paths.get("target", "loadtest-report.txt");
+    private Path supportedStocksFile = Paths.get("supportedStocks.txt");
+
+    //the latency objectives in milliseconds by the percentile, like 99.0 for "--slo.p99-ms=50"
+    private final Map<Double, Double> latencyObjectives = new LinkedHashMap<>();
+    private final List<String> applicationArgs = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("option '" + arg + "' is not --name=value");
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "rate":
+                    options.rate = positive(name, value);
+                    break;
+                case "duration":
+                    options.durationSeconds = positive(name, value);
+                    break;
+                case "warmup":
+                    options.warmupSeconds = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "threads":
+                    options.threads = positive(name, value);
+                    break;
+                case "clients":
+                    options.clients = positive(name, value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "past-days":
+                    options.pastDays = positive(name, value);
+                    break;
+                case "mix":
+                    options.mix = new RouteMix(value);
+                    break;
+                case "target":
+                    options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "report":
+                    options.report = Paths.get(value);
+                    break;
+                default:
+                    if (name.startsWith(SLO_OPTION_PREFIX)) {
+                        options.latencyObjectives.put(percentile(name), Double.parseDouble(value));
+                    } else {
+                        //the supported stocks are read by the load test too, to generate the portfolios
+                        if (name.equals(SUPPORTED_STOCKS_FILE_OPTION)) {
+                            options.supportedStocksFile = Paths.get(value);
+                        }
+                        options.applicationArgs.add(arg);
+                    }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @return the percentile of an objective option, 99.9 for "slo.p999-ms"
+     */
+    private static double percentile(String name) {
+        if (!name.matches("slo\\.p[0-9]{2,}-ms")) {
+            throw new IllegalArgumentException("latency objective '" + name + "' is not like slo.p99-ms");
+        }
+        String digits = name.substring(SLO_OPTION_PREFIX.length() + 1, name.length() - "-ms".length());
+        return Double.parseDouble(digits.substring(0, 2) + "." + digits.substring(2));
+    }
+
+    private static int positive(String name, String value) {
+        int number = Integer.parseInt(value);
+        if (number < 1) {
+            throw new IllegalArgumentException("option '" + name + "' must be at least 1");
+        }
+        return number;
+    }
+
+    /**
+     * @return the requests per second to send, on a fixed schedule
+     */
+    int getRate() {
+        return rate;
+    }
+
+    int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * @return the seconds of load before the measurement starts, their latencies are not reported
+     */
+    int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of synthetic clients that are created before the load starts
+     */
+    int getClients() {
+        return clients;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    int getPastDays() {
+        return pastDays;
+    }
+
+    RouteMix getMix() {
+        return mix;
+    }
+
+    /**
+     * @return the base url of a running application, or null to start the application in process
+     */
+    String getTarget() {
+        return target;
+    }
+
+    Path getReport() {
+        return report;
+    }
+
+    Path getSupportedStocksFile() {
+        return supportedStocksFile;
+    }
+
+    Map<Double, Double> getLatencyObjectives() {
+        return Collections.unmodifiableMap(latencyObjectives);
+    }
+
+    List<String> getApplicationArgs() {
+        return Collections.unmodifiableList(applicationArgs);
+    }
+}
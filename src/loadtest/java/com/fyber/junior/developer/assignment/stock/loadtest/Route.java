@@ -0,0 +1,50 @@
+package com.fyber.junior.developer.assignment.stock.loadtest;
+
+/**
+ * The routes of the PortfolioResource that the load test drives, the latencies are reported per route.
+ */
+enum Route {
+    CREATE("POST", "/api/portfolio"),
+    REPLACE("PUT", "/api/portfolio/replace/{clientId}"),
+    UPDATE("PUT", "/api/portfolio/update/{clientId}"),
+    VALUE("GET", "/api/portfolio/value/{clientId}"),
+    PERFORMANCE("GET", "/api/portfolio/performance/{clientId}?pastDays={pastDays}"),
+    STABLE("GET", "/api/portfolio/stable/{clientId}?pastDays={pastDays}"),
+    BEST("GET", "/api/portfolio/best/{clientId}");
+
+    private final String method;
+    private final String pathTemplate;
+
+    Route(String method, String pathTemplate) {
+        this.method = method;
+        this.pathTemplate = pathTemplate;
+    }
+
+    String method() {
+        return method;
+    }
+
+    String path(long clientId, int pastDays) {
+        return pathTemplate.replace("{clientId}", String.valueOf(clientId))
+                .replace("{pastDays}", String.valueOf(pastDays));
+    }
+
+    /**
+     * @return the route as it is written in the report, like "GET /api/portfolio/value/{clientId}"
+     */
+    String label() {
+        return method + " " + pathTemplate;
+    }
+
+    /**
+     * @return the route of a name in the mix option, like "value"
+     */
+    static Route of(String name) {
+        for (Route route : values()) {
+            if (route.name().equalsIgnoreCase(name.trim())) {
+                return route;
+            }
+        }
+        throw new IllegalArgumentException("unknown route '" + name + "' in the mix");
+    }
+}
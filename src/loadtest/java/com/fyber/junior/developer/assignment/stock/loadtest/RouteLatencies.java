@@ -0,0 +1,110 @@
+package com.fyber.junior.developer.assignment.stock.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latency histograms and error counts of every route, recorded concurrently by the load test's threads.
+ * The latencies are recorded in nanoseconds with 3 significant digits, and reported in milliseconds.
+ */
+final class RouteLatencies {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double[] REPORTED_PERCENTILES = {50.0, 99.0, 99.9};
+
+    private final Map<Route, Histogram> histograms = new EnumMap<>(Route.class);
+    private final Map<Route, LongAdder> errors = new EnumMap<>(Route.class);
+
+    RouteLatencies() {
+        for (Route route : Route.values()) {
+            histograms.put(route, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(route, new LongAdder());
+        }
+    }
+
+    /**
+     * @param latencyNanos the time from the scheduled send time of the request to its response
+     * @param succeeded false when the request failed or its response status is not 2xx
+     */
+    void record(Route route, long latencyNanos, boolean succeeded) {
+        histograms.get(route).recordValue(latencyNanos);
+        if (!succeeded) {
+            errors.get(route).increment();
+        }
+    }
+
+    /**
+     * Prints a line per route and a total line with the count, errors, throughput and latency percentiles,
+     * and marks the percentiles that missed their objective.
+     * @param measuredSeconds the length of the measurement, to calculate the throughput with
+     * @param latencyObjectives the objectives in milliseconds by the percentile
+     * @return true if every route met every objective
+     */
+    boolean report(PrintStream out, double measuredSeconds, Map<Double, Double> latencyObjectives) {
+        out.printf(Locale.ROOT, "%-60s %8s %7s %9s %9s %9s %9s %9s  %s%n",
+                "route", "count", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "objectives");
+
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        long totalErrors = 0;
+        boolean objectivesMet = true;
+        for (Route route : Route.values()) {
+            Histogram histogram = histograms.get(route);
+            if (histogram.getTotalCount() > 0) {
+                total.add(histogram);
+                totalErrors += errors.get(route).sum();
+                objectivesMet &= reportLine(out, route.label(), histogram, errors.get(route).sum(),
+                        measuredSeconds, latencyObjectives);
+            }
+        }
+        objectivesMet &= reportLine(out, "total", total, totalErrors, measuredSeconds, latencyObjectives);
+        return objectivesMet;
+    }
+
+    private static boolean reportLine(PrintStream out, String label, Histogram histogram, long errors,
+                                      double measuredSeconds, Map<Double, Double> latencyObjectives) {
+        out.printf(Locale.ROOT, "%-60s %8d %7d %9.1f", label, histogram.getTotalCount(), errors,
+                histogram.getTotalCount() / measuredSeconds);
+        for (double percentile : REPORTED_PERCENTILES) {
+            out.printf(Locale.ROOT, " %9.3f", histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI);
+        }
+        out.printf(Locale.ROOT, " %9.3f ", histogram.getMaxValue() / NANOS_PER_MILLI);
+
+        boolean objectivesMet = true;
+        for (Map.Entry<Double, Double> objective : latencyObjectives.entrySet()) {
+            double millis = histogram.getValueAtPercentile(objective.getKey()) / NANOS_PER_MILLI;
+            boolean met = millis <= objective.getValue();
+            objectivesMet &= met;
+            out.printf(Locale.ROOT, " p%s<=%sms:%s", number(objective.getKey()), number(objective.getValue()),
+                    met ? "met" : "MISSED");
+        }
+        out.println();
+        return objectivesMet;
+    }
+
+    private static String number(double number) {
+        return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Prints the full percentile distribution of every route, in milliseconds.
+     */
+    void printDistributions(PrintStream out) {
+        for (Route route : Route.values()) {
+            Histogram histogram = histograms.get(route);
+            if (histogram.getTotalCount() > 0) {
+                out.println();
+                out.println(route.label());
+                histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.fyber.junior.developer.assignment.stock.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The weights of the routes in the load, parsed from a "route:weight,route:weight" option, like "value:40,best:10".
+ */
+final class RouteMix {
+    private final Map<Route, Integer> weights = new EnumMap<>(Route.class);
+    private final Route[] routes;
+    private final int[] cumulativeWeights;
+
+    RouteMix(String mix) {
+        for (String entry : mix.split(",")) {
+            String[] routeAndWeight = entry.split(":");
+            if (routeAndWeight.length != 2) {
+                throw new IllegalArgumentException("mix entry '" + entry + "' is not route:weight");
+            }
+            int weight = Integer.parseInt(routeAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("mix entry '" + entry + "' has a negative weight");
+            }
+            if (weight > 0) {
+                weights.merge(Route.of(routeAndWeight[0]), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("the mix '" + mix + "' has no route with a positive weight");
+        }
+
+        routes = weights.keySet().toArray(new Route[0]);
+        cumulativeWeights = new int[routes.length];
+        int total = 0;
+        for (int i = 0; i < routes.length; i++) {
+            total += weights.get(routes[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * @return a route, with a probability proportional to its weight
+     */
+    Route pick(SplittableRandom random) {
+        int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= ticket) {
+            i++;
+        }
+        return routes[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder mix = new StringBuilder();
+        weights.forEach((route, weight) -> mix.append(mix.length() == 0 ? "" : ",")
+                .append(route.name().toLowerCase(Locale.ROOT)).append(':').append(weight));
+        return mix.toString();
+    }
+}
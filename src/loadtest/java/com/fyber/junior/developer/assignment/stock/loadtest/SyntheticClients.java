@@ -0,0 +1,55 @@
+package com.fyber.junior.developer.assignment.stock.loadtest;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the portfolios of the synthetic clients as JSON request bodies.
+ * Every portfolio of a client holds the client's core stocks, so an update of the core stocks is valid
+ * after any replace, and never holds all the symbols, so there is always a stock to recommend.
+ */
+final class SyntheticClients {
+
+    private static final int CORE_STOCKS = 2;
+    private static final int MAX_AMOUNT = 100;
+
+    private final List<String> symbols;
+
+    SyntheticClients(List<String> symbols) {
+        if (symbols.size() <= CORE_STOCKS) {
+            throw new IllegalArgumentException("the load test needs at least " + (CORE_STOCKS + 1) +
+                    " supported stocks, found " + symbols.size());
+        }
+        this.symbols = symbols;
+    }
+
+    /**
+     * @return a portfolio of the client's core stocks and some of the other stocks, with random amounts
+     */
+    String portfolio(int clientIndex, SplittableRandom random) {
+        StringBuilder portfolio = new StringBuilder("[");
+        int stocks = CORE_STOCKS + random.nextInt(symbols.size() - CORE_STOCKS);
+        for (int i = 0; i < stocks; i++) {
+            appendStock(portfolio, symbols.get((clientIndex + i) % symbols.size()), 1 + random.nextInt(MAX_AMOUNT));
+        }
+        return portfolio.append(']').toString();
+    }
+
+    /**
+     * @return new amounts for the client's core stocks
+     */
+    String coreStocksUpdate(int clientIndex, SplittableRandom random) {
+        StringBuilder update = new StringBuilder("[");
+        for (int i = 0; i < CORE_STOCKS; i++) {
+            appendStock(update, symbols.get((clientIndex + i) % symbols.size()), 1 + random.nextInt(MAX_AMOUNT));
+        }
+        return update.append(']').toString();
+    }
+
+    private static void appendStock(StringBuilder portfolio, String symbol, int amount) {
+        if (portfolio.length() > 1) {
+            portfolio.append(',');
+        }
+        portfolio.append("{\"stockSymbol\":\"").append(symbol).append("\",\"stockAmount\":").append(amount).append('}');
+    }
+}
@@ -2,8 +2,10 @@ package com.fyber.junior.developer.assignment.stock;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class FyberStockAppApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,334 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is responsible to parse the rows of a single chunk of the stocks history csv file,
+ * straight from its bytes. A row is "symbol,close,d.M.yyyy".
+ * Numbers and dates are parsed from the bytes without creating a String per field, and a symbol is turned into
+ * a String only the first time it appears in the chunk, by a table keyed by the symbol's bytes.
+ * A malformed row is counted and skipped, the first one is kept for the error message.
+ */
+final class CsvChunkParser {
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final byte[] bytes;
+    private final long chunkPosition;
+
+    //the open addressing table of the chunk's symbols, from the hash of the symbol's bytes to its series
+    private int[] tableSlots = new int[64];
+    private final List<byte[]> symbolBytes = new ArrayList<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final List<PriceHistoryCsvParser.SymbolSeries> series = new ArrayList<>();
+
+    private long rows;
+    private long malformedRows;
+    private boolean fieldMalformed;
+    private String firstMalformedRow;
+
+    /**
+     * @param bytes the bytes of the chunk
+     * @param chunkPosition the position of the chunk in the file, used in the error messages
+     */
+    CsvChunkParser(byte[] bytes, long chunkPosition) {
+        this.bytes = bytes;
+        this.chunkPosition = chunkPosition;
+        Arrays.fill(tableSlots, -1);
+    }
+
+    /**
+     * Parses the rows that start before the end offset. The last of them may continue after the end offset,
+     * up to the length of the bytes.
+     * @param start the offset of the first row
+     * @param end the offset that the next chunk starts at
+     * @param length the number of bytes read, from the start of the chunk
+     * @param endOfFile true if the bytes read reach the end of the file
+     */
+    void parse(int start, int end, int length, boolean endOfFile) {
+        int rowStart = start;
+        while (rowStart < end) {
+            int rowEnd = rowStart;
+            while (rowEnd < length && bytes[rowEnd] != '\n') {
+                rowEnd++;
+            }
+
+            //a row that is longer than the bytes read after the chunk, unless it is the last row of the file
+            if (rowEnd == length && !endOfFile) {
+                malformed(rowStart, rowEnd);
+                return;
+            }
+            parseRow(rowStart, rowEnd);
+            rowStart = rowEnd + 1;
+        }
+    }
+
+    private void parseRow(int rowStart, int rowEnd) {
+        if (rowEnd > rowStart && bytes[rowEnd - 1] == '\r') {
+            rowEnd--;
+        }
+        if (isBlank(rowStart, rowEnd)) {
+            return;
+        }
+
+        int firstComma = indexOf(',', rowStart, rowEnd);
+        int secondComma = firstComma < 0 ? -1 : indexOf(',', firstComma + 1, rowEnd);
+        if (secondComma < 0) {
+            malformed(rowStart, rowEnd);
+            return;
+        }
+
+        fieldMalformed = false;
+        double close = parseClose(firstComma + 1, secondComma);
+        int epochDay = parseEpochDay(secondComma + 1, rowEnd);
+        if (fieldMalformed) {
+            malformed(rowStart, rowEnd);
+            return;
+        }
+
+        seriesOf(rowStart, firstComma).add(epochDay, close);
+        rows++;
+    }
+
+    /**
+     * @return the close, or sets {@link #fieldMalformed} when it is malformed
+     */
+    private double parseClose(int from, int to) {
+        from = skipSpaces(from, to);
+        to = trimSpaces(from, to);
+
+        int i = from;
+        boolean negative = i < to && bytes[i] == '-';
+        if (negative || i < to && bytes[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < to; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    break;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+
+        //the common case, the mantissa and the power of ten are exact doubles so the division is correctly rounded
+        if (i == to && digits > 0 && fractionDigits < POWERS_OF_TEN.length) {
+            double close = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -close : close;
+        }
+
+        //exponents, long mantissas and the rest of the forms that Double.parseDouble accepts
+        try {
+            return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            fieldMalformed = true;
+            return 0.0;
+        }
+    }
+
+    /**
+     * @return the epoch day of a "d.M.yyyy" date, or sets {@link #fieldMalformed} when it is malformed
+     */
+    private int parseEpochDay(int from, int to) {
+        from = skipSpaces(from, to);
+        to = trimSpaces(from, to);
+
+        int firstDot = indexOf('.', from, to);
+        int secondDot = firstDot < 0 ? -1 : indexOf('.', firstDot + 1, to);
+        if (secondDot < 0) {
+            fieldMalformed = true;
+            return 0;
+        }
+        int day = parseDigits(from, firstDot, 2);
+        int month = parseDigits(firstDot + 1, secondDot, 2);
+        int year = parseDigits(secondDot + 1, to, 4);
+        if (year < 0 || to - secondDot - 1 != 4 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            fieldMalformed = true;
+            return 0;
+        }
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * @return the number, or -1 when the bytes are not 1 to maxDigits digits
+     */
+    private int parseDigits(int from, int to, int maxDigits) {
+        if (to <= from || to - from > maxDigits) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (bytes[i] - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * The number of days since 1970-01-01, the same as LocalDate.toEpochDay, without creating a LocalDate per row.
+     */
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return the series of the symbol in the given bytes, created the first time the symbol appears in the chunk
+     */
+    private PriceHistoryCsvParser.SymbolSeries seriesOf(int from, int to) {
+        from = skipSpaces(from, to);
+        to = trimSpaces(from, to);
+
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int mask = tableSlots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (tableSlots[slot] >= 0) {
+            int symbolIndex = tableSlots[slot];
+            byte[] symbol = symbolBytes.get(symbolIndex);
+            if (symbol.length == to - from && regionEquals(symbol, from)) {
+                return series.get(symbolIndex);
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] symbol = Arrays.copyOfRange(bytes, from, to);
+        tableSlots[slot] = symbols.size();
+        symbolBytes.add(symbol);
+        symbols.add(new String(symbol, StandardCharsets.UTF_8));
+        PriceHistoryCsvParser.SymbolSeries newSeries = new PriceHistoryCsvParser.SymbolSeries();
+        series.add(newSeries);
+
+        if (symbols.size() * 2 > tableSlots.length) {
+            rehash();
+        }
+        return newSeries;
+    }
+
+    private void rehash() {
+        tableSlots = new int[tableSlots.length * 2];
+        Arrays.fill(tableSlots, -1);
+        int mask = tableSlots.length - 1;
+        for (int symbolIndex = 0; symbolIndex < symbolBytes.size(); symbolIndex++) {
+            int hash = 0;
+            for (byte b : symbolBytes.get(symbolIndex)) {
+                hash = 31 * hash + b;
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (tableSlots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            tableSlots[slot] = symbolIndex;
+        }
+    }
+
+    private boolean regionEquals(byte[] symbol, int from) {
+        for (int i = 0; i < symbol.length; i++) {
+            if (symbol[i] != bytes[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void malformed(int rowStart, int rowEnd) {
+        malformedRows++;
+        if (firstMalformedRow == null) {
+            firstMalformedRow = "Malformed row at byte " + (chunkPosition + rowStart) + ": '" +
+                    new String(bytes, rowStart, Math.min(rowEnd - rowStart, 200), StandardCharsets.UTF_8) + "'";
+        }
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBlank(int from, int to) {
+        return skipSpaces(from, to) == to;
+    }
+
+    private int skipSpaces(int from, int to) {
+        while (from < to && (bytes[from] == ' ' || bytes[from] == '\t')) {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimSpaces(int from, int to) {
+        while (to > from && (bytes[to - 1] == ' ' || bytes[to - 1] == '\t')) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * @return the symbols of the chunk, in the order of their first appearance
+     */
+    List<String> symbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the series of the chunk, matching {@link #symbols()}
+     */
+    List<PriceHistoryCsvParser.SymbolSeries> series() {
+        return series;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    long malformedRows() {
+        return malformedRows;
+    }
+
+    String firstMalformedRow() {
+        return firstMalformedRow;
+    }
+}
@@ -0,0 +1,226 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This component holds the intraday ticks of the supported stocks: the recent ticks of every stock in a
+ * {@link TickRingBuffer}, and the latest price of every stock, which is replaced in place by a newer tick.
+ * A tick older than the stock's latest price is kept with the recent ticks but does not change the price,
+ * and a tick without a timestamp is stamped with the time it arrived. A tick stamped further in the future than
+ * the allowed clock skew is rejected, it would otherwise hold the price until the feed's clock caught up with it.
+ * The ticks are intraday prices, so the ticks of the day of the stock's latest close in the price history, or of
+ * an earlier day, are replaced by that close: they are dropped from the latest prices when a price history is
+ * loaded, and a tick arriving later for such a day is stale.
+ * The changes of the latest prices are passed to the {@link PriceTickListener}s.
+ * "market.ticks" counts the ingested ticks by their outcome, accepted, stale or rejected.
+ */
+@Component
+public class LivePriceBook {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final SupportedStocksStore supportedStocksStore;
+    private final PriceHistoryStore priceHistoryStore;
+    private final int ringSize;
+    private final long maxClockSkewMillis;
+    private final ConcurrentHashMap<String, SymbolTicks> symbolTicks = new ConcurrentHashMap<>();
+    private final List<PriceTickListener> listeners = new CopyOnWriteArrayList<>();
+    private final Counter accepted;
+    private final Counter stale;
+    private final Counter rejected;
+
+    @Autowired
+    public LivePriceBook(SupportedStocksStore supportedStocksStore, PriceHistoryStore priceHistoryStore,
+                         MeterRegistry meterRegistry, @Value("${market.ticks.ring-size:1024}") int ringSize,
+                         @Value("${market.ticks.max-clock-skew-ms:5000}") long maxClockSkewMillis) {
+        this.supportedStocksStore = supportedStocksStore;
+        this.priceHistoryStore = priceHistoryStore;
+        this.ringSize = ringSize;
+        this.maxClockSkewMillis = maxClockSkewMillis;
+        this.accepted = ticks(meterRegistry, "accepted");
+        this.stale = ticks(meterRegistry, "stale");
+        this.rejected = ticks(meterRegistry, "rejected");
+        priceHistoryStore.addReloadListener(this::priceHistoryReloaded);
+    }
+
+    private static Counter ticks(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("market.ticks")
+                .description("Ingested price ticks")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public void addListener(PriceTickListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * This book method is responsible to ingest a batch of ticks, an invalid tick is skipped
+     * and does not stop the batch.
+     * @param ticks the ticks, in the order they are ingested
+     * @return the amounts of accepted, stale and rejected ticks
+     */
+    public TickIngestionResult ingest(Iterator<PriceTick> ticks) {
+        long acceptedTicks = 0;
+        long staleTicks = 0;
+        long rejectedTicks = 0;
+        String firstError = null;
+        while (ticks.hasNext()) {
+            PriceTick tick = ticks.next();
+            String error = validate(tick);
+            if (error == null) {
+                if (record(tick)) {
+                    acceptedTicks++;
+                } else {
+                    staleTicks++;
+                }
+            } else {
+                rejected.increment();
+                rejectedTicks++;
+                if (firstError == null) {
+                    firstError = error;
+                }
+            }
+        }
+        return new TickIngestionResult(acceptedTicks, staleTicks, rejectedTicks, firstError);
+    }
+
+    /**
+     * @param tick the tick to ingest
+     * @return false when the tick is not valid and was skipped, a stale tick is valid
+     */
+    public boolean accept(PriceTick tick) {
+        if (validate(tick) != null) {
+            rejected.increment();
+            return false;
+        }
+        record(tick);
+        return true;
+    }
+
+    /**
+     * @return the latest price of the stock, or NaN when no tick of it was ingested
+     */
+    public double latestPrice(String symbol) {
+        SymbolTicks ticks = symbolTicks.get(symbol);
+        PriceTick latest = ticks == null ? null : ticks.latest;
+        return latest == null ? Double.NaN : latest.getPrice();
+    }
+
+    /**
+     * @param limit the most ticks to return
+     * @return the stock's recent ticks in the order they arrived, the newest first
+     */
+    public List<PriceTick> recentTicks(String symbol, int limit) {
+        SymbolTicks ticks = symbolTicks.get(symbol);
+        return ticks == null ? Collections.emptyList() : ticks.recent.recent(limit);
+    }
+
+    /**
+     * This book method is responsible to drop the latest prices the new price history's closes replaced,
+     * and to tell the listeners the price history changed. The recent ticks are kept.
+     */
+    void priceHistoryReloaded(PriceHistory priceHistory) {
+        for (Map.Entry<String, SymbolTicks> entry : symbolTicks.entrySet()) {
+            SymbolTicks ticks = entry.getValue();
+            synchronized (ticks) {
+                ticks.closeEpochDay = closeEpochDay(entry.getKey(), priceHistory);
+                PriceTick latest = ticks.latest;
+                if (latest != null && epochDay(latest) <= ticks.closeEpochDay) {
+                    ticks.latest = null;
+                }
+            }
+        }
+        for (PriceTickListener listener : listeners) {
+            listener.priceHistoryReloaded(priceHistory);
+        }
+    }
+
+    /**
+     * @return the reason the tick is not valid, or null when it is
+     */
+    private String validate(PriceTick tick) {
+        if (tick == null || tick.getSymbol() == null) {
+            return "a tick without a stock symbol";
+        }
+        if (supportedStocksStore.getSupportedStocks().indexOf(tick.getSymbol()) < 0) {
+            return "The stock '" + tick.getSymbol() + "' is not supported";
+        }
+        if (!(tick.getPrice() > 0) || Double.isInfinite(tick.getPrice())) {
+            return "the price '" + tick.getPrice() + "' of stock '" + tick.getSymbol() + "' is not valid";
+        }
+        if (tick.getTimestamp() > System.currentTimeMillis() + maxClockSkewMillis) {
+            return "the timestamp '" + tick.getTimestamp() + "' of stock '" + tick.getSymbol() + "' is in the future";
+        }
+        return null;
+    }
+
+    /**
+     * @return true when the tick became the stock's latest price, false when it is stale
+     */
+    private boolean record(PriceTick tick) {
+        if (tick.getTimestamp() <= 0) {
+            tick = new PriceTick(tick.getSymbol(), tick.getPrice(), System.currentTimeMillis());
+        }
+
+        //looking the stock up before computing it, the computing locks the map's bin even when the stock exists
+        SymbolTicks ticks = symbolTicks.get(tick.getSymbol());
+        if (ticks == null) {
+            ticks = symbolTicks.computeIfAbsent(tick.getSymbol(), symbol ->
+                    new SymbolTicks(ringSize, closeEpochDay(symbol, priceHistoryStore.getPriceHistory())));
+        }
+        ticks.recent.add(tick);
+
+        //the latest price and the listeners of a stock change together, so the listeners see the prices in order
+        synchronized (ticks) {
+            PriceTick latest = ticks.latest;
+            if ((latest != null && tick.getTimestamp() < latest.getTimestamp()) ||
+                    epochDay(tick) <= ticks.closeEpochDay) {
+                stale.increment();
+                return false;
+            }
+            ticks.latest = tick;
+            for (PriceTickListener listener : listeners) {
+                listener.priceChanged(tick.getSymbol(), tick.getPrice());
+            }
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * @return the epoch day of the stock's latest close, or the smallest int when it has no price history
+     */
+    private static int closeEpochDay(String symbol, PriceHistory priceHistory) {
+        int symbolIndex = priceHistory.indexOf(symbol);
+        return symbolIndex < 0 ? Integer.MIN_VALUE : priceHistory.epochDay(symbolIndex, 0);
+    }
+
+    private static long epochDay(PriceTick tick) {
+        return Math.floorDiv(tick.getTimestamp(), MILLIS_PER_DAY);
+    }
+
+    /**
+     * The recent ticks and the latest tick of a single stock, together with the day of the stock's latest close.
+     */
+    private static final class SymbolTicks {
+        private final TickRingBuffer recent;
+        private volatile PriceTick latest;
+        private int closeEpochDay;
+
+        private SymbolTicks(int ringSize, int closeEpochDay) {
+            this.recent = new TickRingBuffer(ringSize);
+            this.closeEpochDay = closeEpochDay;
+        }
+    }
+}
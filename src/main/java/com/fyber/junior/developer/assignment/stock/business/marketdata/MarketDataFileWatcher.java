@@ -0,0 +1,27 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * This component polls the market data files in the background and reloads a file's store
+ * when the file was modified, so requests never parse a file themselves.
+ */
+@Component
+public class MarketDataFileWatcher {
+    private PriceHistoryStore priceHistoryStore;
+    private SupportedStocksStore supportedStocksStore;
+
+    @Autowired
+    public MarketDataFileWatcher(PriceHistoryStore priceHistoryStore, SupportedStocksStore supportedStocksStore) {
+        this.priceHistoryStore = priceHistoryStore;
+        this.supportedStocksStore = supportedStocksStore;
+    }
+
+    @Scheduled(fixedDelayString = "${market-data.reload-interval-ms:1000}")
+    public void reloadModifiedFiles() {
+        priceHistoryStore.reloadIfModified();
+        supportedStocksStore.reloadIfModified();
+    }
+}
@@ -0,0 +1,219 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the stocks price history.
+ * The history is kept in columns: a closing price column and a matching epoch day column, where the rows of
+ * every symbol are a contiguous range ordered by date from the oldest to the latest day, and a table of the
+ * offsets of those ranges. The columns are either heap arrays or a memory mapped {@link PriceHistoryBinaryFile},
+ * and reading them never copies or boxes anything.
+ * Symbols are addressed by an index, so the analytics code can read the prices without boxing or
+ * allocating anything per row.
+ * The statistics of the trailing windows are calculated together with the snapshot, see {@link PriceWindowStats},
+ * and so is the ranking of the symbols by their latest close.
+ */
+public final class PriceHistory {
+
+    public static final PriceHistory EMPTY = of(new String[0], new double[0][], new int[0][], 0);
+
+    private final String[] symbols;
+    private final int[] rowOffsets;
+    private final DoubleBuffer closes;
+    private final IntBuffer epochDays;
+    private final Map<String, Integer> symbolIndex;
+    private final PriceWindowStats windowStats;
+    private final int[] symbolsByLatestClose;
+    private final int longestHistoryLength;
+
+    /**
+     * @param symbols the symbols, by their index
+     * @param rowOffsets the first row of every symbol, followed by the total number of rows
+     * @param closes the closing price column
+     * @param epochDays the epoch day column
+     * @param windowDays the longest trailing window to calculate statistics for
+     */
+    PriceHistory(String[] symbols, int[] rowOffsets, DoubleBuffer closes, IntBuffer epochDays, int windowDays) {
+        this.symbols = symbols;
+        this.rowOffsets = rowOffsets;
+        this.closes = closes;
+        this.epochDays = epochDays;
+
+        Map<String, Integer> index = new HashMap<>(symbols.length * 2);
+        for (int i = 0; i < symbols.length; i++) {
+            index.put(symbols[i], i);
+        }
+        this.symbolIndex = Collections.unmodifiableMap(index);
+
+        //ranking the symbols from the highest latest close to the lowest, once per snapshot so boxing here
+        //stays off the request path. The sort is stable, so equal closes keep the order of the file
+        Integer[] ranking = new Integer[symbols.length];
+        for (int i = 0; i < ranking.length; i++) {
+            ranking[i] = i;
+        }
+        Arrays.sort(ranking, (first, second) -> Double.compare(latestClose(second), latestClose(first)));
+        this.symbolsByLatestClose = new int[ranking.length];
+        for (int i = 0; i < ranking.length; i++) {
+            symbolsByLatestClose[i] = ranking[i];
+        }
+
+        int longestHistory = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            longestHistory = Math.max(longestHistory, historyLength(i));
+        }
+        this.longestHistoryLength = longestHistory;
+
+        this.windowStats = new PriceWindowStats(this, windowDays);
+    }
+
+    /**
+     * Builds a heap snapshot from the history of every symbol.
+     * @param symbols the symbols, by their index
+     * @param closes the closing prices of every symbol, ordered by date from the oldest to the latest day
+     * @param epochDays the epoch days matching the closing prices
+     * @param windowDays the longest trailing window to calculate statistics for
+     */
+    static PriceHistory of(String[] symbols, double[][] closes, int[][] epochDays, int windowDays) {
+        int[] rowOffsets = new int[symbols.length + 1];
+        for (int i = 0; i < symbols.length; i++) {
+            rowOffsets[i + 1] = rowOffsets[i] + closes[i].length;
+        }
+
+        double[] closesColumn = new double[rowOffsets[symbols.length]];
+        int[] epochDaysColumn = new int[closesColumn.length];
+        for (int i = 0; i < symbols.length; i++) {
+            System.arraycopy(closes[i], 0, closesColumn, rowOffsets[i], closes[i].length);
+            System.arraycopy(epochDays[i], 0, epochDaysColumn, rowOffsets[i], epochDays[i].length);
+        }
+        return new PriceHistory(symbols, rowOffsets, DoubleBuffer.wrap(closesColumn),
+                IntBuffer.wrap(epochDaysColumn), windowDays);
+    }
+
+    /**
+     * @return the number of symbols in this snapshot
+     */
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * @param symbol the stock symbol
+     * @return the index of the symbol in this snapshot, or -1 when there is no history for it
+     */
+    public int indexOf(String symbol) {
+        Integer index = symbolIndex.get(symbol);
+        return index == null ? -1 : index;
+    }
+
+    public String symbol(int symbolIndex) {
+        return symbols[symbolIndex];
+    }
+
+    /**
+     * @return how many days of history exist for the symbol
+     */
+    public int historyLength(int symbolIndex) {
+        return rowOffsets[symbolIndex + 1] - rowOffsets[symbolIndex];
+    }
+
+    /**
+     * @return the number of days of history of the symbol with the longest history
+     */
+    public int longestHistoryLength() {
+        return longestHistoryLength;
+    }
+
+    /**
+     * Finds the latest close of the symbol on or before the given day, with a binary search over its epoch days.
+     * @param epochDay the day
+     * @return the number of days back of that close, or -1 when the symbol has no close on or before the day
+     */
+    public int daysBackOnOrBefore(int symbolIndex, int epochDay) {
+        //the first row that is after the day
+        int after = firstRowAfter(symbolIndex, epochDay);
+        return after == rowOffsets[symbolIndex] ? -1 : rowOffsets[symbolIndex + 1] - after;
+    }
+
+    /**
+     * Finds the earliest close of the symbol on or after the given day, with a binary search over its epoch days.
+     * @param epochDay the day
+     * @return the number of days back of that close, or -1 when the symbol has no close on or after the day
+     */
+    public int daysBackOnOrAfter(int symbolIndex, int epochDay) {
+        //the first row that is on or after the day
+        int onOrAfter = firstRowAfter(symbolIndex, epochDay - 1);
+        return onOrAfter == rowOffsets[symbolIndex + 1] ? -1 : rowOffsets[symbolIndex + 1] - 1 - onOrAfter;
+    }
+
+    /**
+     * @param daysBack 0 for the latest day, 1 for the day before and so on
+     * @return the closing price of the symbol the given number of days back
+     */
+    public double close(int symbolIndex, int daysBack) {
+        return closes.get(row(symbolIndex, daysBack));
+    }
+
+    public double latestClose(int symbolIndex) {
+        return close(symbolIndex, 0);
+    }
+
+    /**
+     * @param daysBack 0 for the latest day, 1 for the day before and so on
+     * @return the epoch day of the close the given number of days back
+     */
+    public int epochDay(int symbolIndex, int daysBack) {
+        return epochDays.get(row(symbolIndex, daysBack));
+    }
+
+    /**
+     * @param rank 0 for the symbol with the highest latest close, 1 for the next one and so on
+     * @return the index of the symbol in the given rank
+     */
+    public int symbolIndexByLatestCloseRank(int rank) {
+        return symbolsByLatestClose[rank];
+    }
+
+    /**
+     * @return the precalculated statistics of the trailing windows of every symbol
+     */
+    public PriceWindowStats windowStats() {
+        return windowStats;
+    }
+
+    int totalRows() {
+        return rowOffsets[symbols.length];
+    }
+
+    /**
+     * @return the first row of the symbol whose epoch day is after the given day, or the end of the symbol's rows
+     */
+    private int firstRowAfter(int symbolIndex, int epochDay) {
+        int low = rowOffsets[symbolIndex];
+        int high = rowOffsets[symbolIndex + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDays.get(middle) <= epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the row of the symbol's close the given number of days back, in the columns
+     */
+    private int row(int symbolIndex, int daysBack) {
+        int latestRow = rowOffsets[symbolIndex + 1] - 1;
+        if (daysBack < 0 || latestRow - daysBack < rowOffsets[symbolIndex]) {
+            throw new IndexOutOfBoundsException("no close " + daysBack + " days back for '" + symbols[symbolIndex] + "'");
+        }
+        return latestRow - daysBack;
+    }
+}
@@ -0,0 +1,215 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class is responsible to write a {@link PriceHistory} in a columnar binary format, and to read it back
+ * by memory mapping the file, so the prices are read straight from the page cache without being parsed
+ * or copied to the heap.
+ * The layout, in little endian:
+ * <pre>
+ * int magic, int version, int symbolCount, int rowCount
+ * int[symbolCount + 1] the first row of every symbol, followed by rowCount
+ * symbolCount times: unsigned byte length, US-ASCII symbol bytes
+ * padding to a multiple of 8 bytes
+ * double[rowCount] closing prices
+ * int[rowCount] epoch days
+ * </pre>
+ * The symbols are unique, and the rows of every symbol are ordered by date from the oldest to the latest day.
+ * A mapped file must not be modified in place, a new version has to be renamed over it
+ * as {@link #write(PriceHistory, Path)} does.
+ */
+public final class PriceHistoryBinaryFile {
+
+    //"PHB1" when read as bytes
+    static final int MAGIC = 0x31424850;
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private PriceHistoryBinaryFile() {
+    }
+
+    /**
+     * @param file the price history file
+     * @return true if the file starts with the magic number of this format
+     */
+    public static boolean isBinaryFile(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] magic = new byte[4];
+            return in.read(magic) == magic.length && ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Maps the file to memory, only the header and the symbol dictionary are read to the heap.
+     * @param file the binary price history file
+     * @param windowDays the longest trailing window to calculate statistics for
+     * @return the price history, reading its columns from the mapped file
+     * @throws IllegalArgumentException when the file is not a valid binary price history file
+     */
+    public static PriceHistory map(Path file, int windowDays) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("price history files over 2GB are not supported");
+            }
+            //the mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("not a binary price history file");
+            }
+            if (mapped.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("unsupported binary price history version " + mapped.getInt(4));
+            }
+            int symbolCount = mapped.getInt(8);
+            int rowCount = mapped.getInt(12);
+            if (symbolCount < 0 || rowCount < 0 || symbolCount > (mapped.capacity() - HEADER_BYTES) / Integer.BYTES) {
+                throw new IllegalArgumentException("corrupted binary price history header");
+            }
+
+            mapped.position(HEADER_BYTES);
+            int[] rowOffsets = new int[symbolCount + 1];
+            for (int i = 0; i <= symbolCount; i++) {
+                rowOffsets[i] = mapped.getInt();
+
+                //every symbol has at least one row
+                if (i == 0 ? rowOffsets[i] != 0 : rowOffsets[i] <= rowOffsets[i - 1]) {
+                    throw new IllegalArgumentException("corrupted binary price history row offsets");
+                }
+            }
+            if (rowOffsets[symbolCount] != rowCount) {
+                throw new IllegalArgumentException("corrupted binary price history row offsets");
+            }
+
+            String[] symbols = new String[symbolCount];
+            Set<String> uniqueSymbols = new HashSet<>(symbolCount * 2);
+            for (int i = 0; i < symbolCount; i++) {
+                byte[] symbol = new byte[mapped.get() & 0xFF];
+                mapped.get(symbol);
+                symbols[i] = new String(symbol, StandardCharsets.US_ASCII).intern();
+                if (!uniqueSymbols.add(symbols[i])) {
+                    throw new IllegalArgumentException("symbol '" + symbols[i] +
+                            "' appears twice in the binary price history");
+                }
+            }
+
+            int closesPosition = align(mapped.position());
+            long epochDaysPosition = closesPosition + (long) rowCount * Double.BYTES;
+            if (epochDaysPosition + (long) rowCount * Integer.BYTES != mapped.capacity()) {
+                throw new IllegalArgumentException("binary price history file size does not match its header");
+            }
+
+            DoubleBuffer closes = column(mapped, closesPosition).asDoubleBuffer();
+            IntBuffer epochDays = column(mapped, (int) epochDaysPosition).asIntBuffer();
+            closes.limit(rowCount);
+
+            //the days are binary searched and the window statistics are calculated by their order, so it is checked once
+            for (int i = 0; i < symbolCount; i++) {
+                for (int row = rowOffsets[i] + 1; row < rowOffsets[i + 1]; row++) {
+                    if (epochDays.get(row) <= epochDays.get(row - 1)) {
+                        throw new IllegalArgumentException("the days of symbol '" + symbols[i] +
+                                "' are not in increasing order in the binary price history");
+                    }
+                }
+            }
+            return new PriceHistory(symbols, rowOffsets, closes, epochDays, windowDays);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated binary price history file", e);
+        }
+    }
+
+    /**
+     * Writes the price history to a temporary file next to the target, and renames it over the target,
+     * so a reader that mapped the previous version keeps reading a complete file.
+     * @param priceHistory the price history to write
+     * @param file the target file
+     */
+    public static void write(PriceHistory priceHistory, Path file) throws IOException {
+        int symbolCount = priceHistory.symbolCount();
+        int rowCount = priceHistory.totalRows();
+
+        byte[][] symbols = new byte[symbolCount][];
+        long dictionaryBytes = 0;
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = priceHistory.symbol(i).getBytes(StandardCharsets.US_ASCII);
+            if (symbols[i].length > 0xFF) {
+                throw new IllegalArgumentException("symbol '" + priceHistory.symbol(i) + "' is too long");
+            }
+            dictionaryBytes += 1 + symbols[i].length;
+        }
+        long closesPosition = align(HEADER_BYTES + (symbolCount + 1L) * Integer.BYTES + dictionaryBytes);
+        long fileSize = closesPosition + (long) rowCount * (Double.BYTES + Integer.BYTES);
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("price history files over 2GB are not supported");
+        }
+
+        //not using Files.createTempFile, which would leave the target readable by its owner only
+        Path temporaryFile = file.toAbsolutePath().resolveSibling(file.getFileName() + "." + System.nanoTime() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                mapped.putInt(MAGIC).putInt(VERSION).putInt(symbolCount).putInt(rowCount);
+
+                int row = 0;
+                for (int i = 0; i < symbolCount; i++) {
+                    mapped.putInt(row);
+                    row += priceHistory.historyLength(i);
+                }
+                mapped.putInt(row);
+                for (byte[] symbol : symbols) {
+                    mapped.put((byte) symbol.length).put(symbol);
+                }
+
+                //writing the columns of every symbol from the oldest to the latest day
+                int epochDaysPosition = (int) closesPosition + rowCount * Double.BYTES;
+                row = 0;
+                for (int i = 0; i < symbolCount; i++) {
+                    for (int daysBack = priceHistory.historyLength(i) - 1; daysBack >= 0; daysBack--) {
+                        mapped.putDouble((int) closesPosition + row * Double.BYTES, priceHistory.close(i, daysBack));
+                        mapped.putInt(epochDaysPosition + row * Integer.BYTES, priceHistory.epochDay(i, daysBack));
+                        row++;
+                    }
+                }
+                mapped.force();
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static ByteBuffer column(ByteBuffer mapped, int position) {
+        ByteBuffer column = mapped.duplicate();
+        column.position(position);
+        return column.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
@@ -0,0 +1,30 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A command line tool that converts a stocks history csv file to the binary format of {@link PriceHistoryBinaryFile}.
+ * Usage: PriceHistoryConverter &lt;stocks csv file&gt; &lt;binary file&gt;
+ */
+public final class PriceHistoryConverter {
+
+    private PriceHistoryConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PriceHistoryConverter <stocks csv file> <binary file>");
+            System.exit(1);
+        }
+        Path csvFile = Paths.get(args[0]);
+        Path binaryFile = Paths.get(args[1]);
+
+        //no window statistics are needed for writing the file
+        PriceHistory priceHistory = PriceHistoryCsvParser.parse(csvFile, 0);
+        PriceHistoryBinaryFile.write(priceHistory, binaryFile);
+        System.out.println("Converted " + priceHistory.totalRows() + " rows of " + priceHistory.symbolCount() +
+                " stocks from '" + csvFile + "' to '" + binaryFile + "'");
+    }
+}
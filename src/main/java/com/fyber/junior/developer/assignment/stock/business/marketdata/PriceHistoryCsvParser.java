@@ -0,0 +1,262 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class is responsible to parse the stocks history file into a {@link PriceHistory}.
+ * Every row of the file holds a symbol, a closing price and a date, for example: "AAPL,195.35,8.1.2018".
+ * The rows of a symbol may appear in any order, they are sorted by date while building the snapshot.
+ * The file is split into chunks of bytes that are aligned on line breaks, and the chunks are parsed in parallel
+ * on a {@link ForkJoinPool} by {@link CsvChunkParser}. The chunks' results are merged in the order of the file,
+ * so the snapshot does not depend on how the file was split.
+ */
+public final class PriceHistoryCsvParser {
+
+    static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    //how many bytes are read after the end of a chunk to complete its last row
+    private static final int MAX_ROW_BYTES = 4096;
+
+    private PriceHistoryCsvParser() {
+    }
+
+    /**
+     * Parses the file, rejecting it when any of its rows is malformed.
+     * @param stocksFile the stocks history csv file
+     * @param windowDays the longest trailing window to calculate statistics for
+     * @return the parsed price history
+     * @throws IOException when the file cannot be read
+     * @throws IllegalArgumentException when a row of the file is malformed
+     */
+    public static PriceHistory parse(Path stocksFile, int windowDays) throws IOException {
+        Ingestion ingestion = ingest(stocksFile, windowDays, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+        if (ingestion.getMalformedRows() > 0) {
+            throw new IllegalArgumentException(ingestion.getFirstMalformedRow());
+        }
+        return ingestion.getPriceHistory();
+    }
+
+    /**
+     * Parses the file in parallel, skipping and counting its malformed rows.
+     * @param stocksFile the stocks history csv file
+     * @param windowDays the longest trailing window to calculate statistics for
+     * @param pool the pool to parse the chunks on
+     * @param chunkBytes the size of a chunk
+     * @return the parsed price history and the statistics of the ingestion
+     * @throws IOException when the file cannot be read
+     */
+    public static Ingestion ingest(Path stocksFile, int windowDays, ForkJoinPool pool, int chunkBytes)
+            throws IOException {
+        long startTime = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(stocksFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            List<ForkJoinTask<CsvChunkParser>> chunks = new ArrayList<>();
+            for (long chunkPosition = 0; chunkPosition < fileSize; chunkPosition += chunkBytes) {
+                long position = chunkPosition;
+                chunks.add(pool.submit(() -> parseChunk(channel, position, chunkBytes, fileSize)));
+            }
+
+            //merging the chunks in the order of the file
+            Map<String, SymbolSeries> seriesBySymbol = new LinkedHashMap<>();
+            long rows = 0;
+            long malformedRows = 0;
+            String firstMalformedRow = null;
+            for (ForkJoinTask<CsvChunkParser> chunk : chunks) {
+                CsvChunkParser chunkParser = join(chunk);
+                for (int i = 0; i < chunkParser.symbols().size(); i++) {
+                    SymbolSeries chunkSeries = chunkParser.series().get(i);
+                    SymbolSeries series = seriesBySymbol.putIfAbsent(chunkParser.symbols().get(i), chunkSeries);
+                    if (series != null) {
+                        series.addAll(chunkSeries);
+                    }
+                }
+                rows += chunkParser.rows();
+                malformedRows += chunkParser.malformedRows();
+                if (firstMalformedRow == null) {
+                    firstMalformedRow = chunkParser.firstMalformedRow();
+                }
+            }
+
+            PriceHistory priceHistory = build(seriesBySymbol, windowDays);
+            return new Ingestion(priceHistory, rows, malformedRows, firstMalformedRow, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Reads a chunk with a positional read, so the chunks can be read concurrently from the same channel,
+     * and parses the rows that start in it.
+     */
+    private static CsvChunkParser parseChunk(FileChannel channel, long chunkPosition, int chunkBytes, long fileSize)
+            throws IOException {
+
+        //reading the byte before the chunk as well, to know whether the chunk starts at the beginning of a row
+        long readPosition = Math.max(0, chunkPosition - 1);
+        int length = (int) Math.min(fileSize - readPosition, chunkPosition - readPosition + chunkBytes + MAX_ROW_BYTES);
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, readPosition + buffer.position()) < 0) {
+                break;
+            }
+        }
+        length = buffer.position();
+
+        //the first row of the chunk starts after the first line break, unless the chunk starts at the
+        //beginning of a row, the row that it cuts belongs to the previous chunk
+        int start = (int) (chunkPosition - readPosition);
+        if (start > 0) {
+            while (start <= length && bytes[start - 1] != '\n') {
+                start++;
+            }
+        }
+        int end = (int) Math.min(length, chunkPosition - readPosition + chunkBytes);
+
+        CsvChunkParser chunkParser = new CsvChunkParser(bytes, readPosition);
+        chunkParser.parse(start, end, length, readPosition + length >= fileSize);
+        return chunkParser;
+    }
+
+    private static CsvChunkParser join(ForkJoinTask<CsvChunkParser> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while parsing the stocks history");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("failed parsing the stocks history", e.getCause());
+        }
+    }
+
+    static PriceHistory build(Map<String, SymbolSeries> seriesBySymbol, int windowDays) {
+        String[] symbols = new String[seriesBySymbol.size()];
+        double[][] closes = new double[symbols.length][];
+        int[][] epochDays = new int[symbols.length][];
+
+        int i = 0;
+        for (Map.Entry<String, SymbolSeries> entry : seriesBySymbol.entrySet()) {
+            SymbolSeries series = entry.getValue();
+            series.sortByDate();
+            symbols[i] = entry.getKey().intern();
+            closes[i] = Arrays.copyOf(series.closes, series.size);
+            epochDays[i] = Arrays.copyOf(series.epochDays, series.size);
+            i++;
+        }
+        return PriceHistory.of(symbols, closes, epochDays, windowDays);
+    }
+
+    /**
+     * The result of parsing a stocks history file, with the statistics of the ingestion.
+     */
+    public static final class Ingestion {
+        private final PriceHistory priceHistory;
+        private final long rows;
+        private final long malformedRows;
+        private final String firstMalformedRow;
+        private final long elapsedNanos;
+
+        Ingestion(PriceHistory priceHistory, long rows, long malformedRows, String firstMalformedRow, long elapsedNanos) {
+            this.priceHistory = priceHistory;
+            this.rows = rows;
+            this.malformedRows = malformedRows;
+            this.firstMalformedRow = firstMalformedRow;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public PriceHistory getPriceHistory() {
+            return priceHistory;
+        }
+
+        /**
+         * @return the number of rows that were parsed
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the number of rows that were skipped since they are malformed
+         */
+        public long getMalformedRows() {
+            return malformedRows;
+        }
+
+        /**
+         * @return the position and the content of the first malformed row, or null when there is none
+         */
+        public String getFirstMalformedRow() {
+            return firstMalformedRow;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    /**
+     * A growable, primitive buffer of the rows of a single symbol.
+     */
+    static final class SymbolSeries {
+        private int[] epochDays = new int[16];
+        private double[] closes = new double[16];
+        private int size;
+
+        void addAll(SymbolSeries other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.epochDays[i], other.closes[i]);
+            }
+        }
+
+        void add(int epochDay, double close) {
+            if (size == closes.length) {
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                closes = Arrays.copyOf(closes, size * 2);
+            }
+            epochDays[size] = epochDay;
+            closes[size] = close;
+            size++;
+        }
+
+        /**
+         * Sorts the rows from the oldest to the latest day, packing the day and the row position into
+         * a single long so the sort stays on primitives.
+         */
+        void sortByDate() {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+
+            int[] sortedDays = new int[size];
+            double[] sortedCloses = new double[size];
+            for (int i = 0; i < size; i++) {
+                int row = (int) keys[i];
+                sortedDays[i] = epochDays[row];
+                sortedCloses[i] = closes[row];
+            }
+            epochDays = sortedDays;
+            closes = sortedCloses;
+        }
+    }
+}
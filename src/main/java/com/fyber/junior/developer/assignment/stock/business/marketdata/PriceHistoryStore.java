@@ -0,0 +1,91 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This component holds the loaded stocks price history.
+ * The history file is parsed once, and parsed again by the {@link MarketDataFileWatcher} only when it changes.
+ * The file is either a csv file or a {@link PriceHistoryBinaryFile}, which is memory mapped instead of parsed.
+ * A csv file with more malformed rows than allowed is rejected, the rest of its malformed rows are skipped.
+ */
+@Component
+public class PriceHistoryStore extends ReloadableFileStore<PriceHistory> {
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryStore.class);
+
+    private int windowDays;
+    private long maxMalformedRows;
+
+    //the statistics of the last parsed csv file, whether it was published or rejected
+    private volatile long lastParsedRows;
+    private volatile long lastMalformedRows;
+    private volatile long lastRowsPerSecond;
+
+    public PriceHistoryStore(@Value("${stocks.history.file:stocks.csv}") String stocksHistoryFilePath,
+                             @Value("${stocks.history.window-days:8}") int windowDays,
+                             @Value("${stocks.history.max-malformed-rows:0}") long maxMalformedRows) {
+        super(Paths.get(stocksHistoryFilePath), PriceHistory.EMPTY);
+        this.windowDays = windowDays;
+        this.maxMalformedRows = maxMalformedRows;
+        reloadIfModified();
+    }
+
+    /**
+     * @return the current price history snapshot
+     */
+    public PriceHistory getPriceHistory() {
+        return snapshot();
+    }
+
+    public long getLastParsedRows() {
+        return lastParsedRows;
+    }
+
+    public long getLastMalformedRows() {
+        return lastMalformedRows;
+    }
+
+    public long getLastRowsPerSecond() {
+        return lastRowsPerSecond;
+    }
+
+    @Override
+    protected PriceHistory parse(Path file) throws IOException {
+        if (PriceHistoryBinaryFile.isBinaryFile(file)) {
+            return PriceHistoryBinaryFile.map(file, windowDays);
+        }
+        PriceHistoryCsvParser.Ingestion ingestion = PriceHistoryCsvParser.ingest(file, windowDays,
+                ForkJoinPool.commonPool(), PriceHistoryCsvParser.DEFAULT_CHUNK_BYTES);
+        lastParsedRows = ingestion.getRows();
+        lastMalformedRows = ingestion.getMalformedRows();
+        lastRowsPerSecond = ingestion.getRowsPerSecond();
+        logger.info("Parsed {} rows of '{}' in {} ms, {} rows/sec, {} malformed rows", ingestion.getRows(), file,
+                TimeUnit.NANOSECONDS.toMillis(ingestion.getElapsedNanos()), ingestion.getRowsPerSecond(),
+                ingestion.getMalformedRows());
+        if (ingestion.getMalformedRows() > maxMalformedRows) {
+            throw new IllegalArgumentException(ingestion.getMalformedRows() + " malformed rows, the first: " +
+                    ingestion.getFirstMalformedRow());
+        }
+        return ingestion.getPriceHistory();
+    }
+
+    @Override
+    protected void validate(PriceHistory newPriceHistory) {
+        if (newPriceHistory.symbolCount() == 0) {
+            throw new IllegalArgumentException("no stocks found in the price history");
+        }
+    }
+
+    @Override
+    protected String describe(PriceHistory priceHistory) {
+        return "price history of " + priceHistory.symbolCount() + " stocks";
+    }
+}
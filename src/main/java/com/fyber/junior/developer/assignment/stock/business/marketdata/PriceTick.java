@@ -0,0 +1,37 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An intraday price of a stock, immutable so it can be shared between the ingesting and the reading threads
+ * without locking.
+ */
+public final class PriceTick {
+    private final String symbol;
+    private final double price;
+    private final long timestamp;
+
+    /**
+     * @param timestamp the time of the price in epoch milliseconds
+     */
+    @JsonCreator
+    public PriceTick(@JsonProperty("symbol") String symbol, @JsonProperty("price") double price,
+                     @JsonProperty("timestamp") long timestamp) {
+        this.symbol = symbol;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
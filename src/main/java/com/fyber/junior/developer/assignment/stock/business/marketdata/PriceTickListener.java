@@ -0,0 +1,22 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+/**
+ * Receives the changes of the stocks' latest prices from the {@link LivePriceBook}.
+ */
+public interface PriceTickListener {
+
+    /**
+     * Called for every tick that became the latest price of its stock. The calls of a single stock never
+     * run concurrently and come in the order of the latest prices, so the listener has to return quickly.
+     * @param symbol the stock symbol
+     * @param price the stock's new latest price
+     */
+    void priceChanged(String symbol, double price);
+
+    /**
+     * Called after a new price history was loaded and the ticks it replaced were dropped,
+     * so the latest prices may have changed for every stock.
+     * @param priceHistory the new price history
+     */
+    void priceHistoryReloaded(PriceHistory priceHistory);
+}
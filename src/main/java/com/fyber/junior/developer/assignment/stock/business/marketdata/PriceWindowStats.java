@@ -0,0 +1,105 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.util.Arrays;
+
+/**
+ * The statistics of the trailing windows of every symbol, calculated once per price snapshot.
+ * A window of N days holds the N latest closes of the symbol, for every N from 1 to the supported window days.
+ * The statistics are kept in flat primitive arrays, indexed by the symbol index and the window length,
+ * so the analytics queries are reduced to array reads.
+ * A window longer than the history of its symbol has NaN statistics, which never win a comparison.
+ */
+public final class PriceWindowStats {
+    private final int windowDays;
+    private final double[] deltas;
+    private final double[] ranges;
+    private final double[] mins;
+    private final double[] maxes;
+    private final double[] standardDeviations;
+
+    PriceWindowStats(PriceHistory priceHistory, int windowDays) {
+        this.windowDays = windowDays;
+        int size = priceHistory.symbolCount() * windowDays;
+        this.deltas = new double[size];
+        this.ranges = new double[size];
+        this.mins = new double[size];
+        this.maxes = new double[size];
+        this.standardDeviations = new double[size];
+        Arrays.fill(deltas, Double.NaN);
+        Arrays.fill(ranges, Double.NaN);
+        Arrays.fill(mins, Double.NaN);
+        Arrays.fill(maxes, Double.NaN);
+        Arrays.fill(standardDeviations, Double.NaN);
+
+        for (int symbolIndex = 0; symbolIndex < priceHistory.symbolCount(); symbolIndex++) {
+            double latestClose = priceHistory.latestClose(symbolIndex);
+            int windows = Math.min(windowDays, priceHistory.historyLength(symbolIndex));
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double mean = 0.0;
+            double squaredDistances = 0.0;
+
+            //growing the window one day back at a time, updating the running statistics
+            for (int days = 1; days <= windows; days++) {
+                double close = priceHistory.close(symbolIndex, days - 1);
+                min = Math.min(min, close);
+                max = Math.max(max, close);
+
+                //Welford's running mean and variance
+                double distance = close - mean;
+                mean += distance / days;
+                squaredDistances += distance * (close - mean);
+
+                int slot = symbolIndex * windowDays + days - 1;
+                deltas[slot] = latestClose - close;
+                ranges[slot] = max - min;
+                mins[slot] = min;
+                maxes[slot] = max;
+                standardDeviations[slot] = Math.sqrt(squaredDistances / days);
+            }
+        }
+    }
+
+    /**
+     * @return the longest window, in days, that statistics were calculated for
+     */
+    public int windowDays() {
+        return windowDays;
+    }
+
+    /**
+     * @return the latest close minus the oldest close of the window
+     */
+    public double delta(int symbolIndex, int days) {
+        return deltas[slot(symbolIndex, days)];
+    }
+
+    /**
+     * @return the highest close minus the lowest close of the window
+     */
+    public double range(int symbolIndex, int days) {
+        return ranges[slot(symbolIndex, days)];
+    }
+
+    public double min(int symbolIndex, int days) {
+        return mins[slot(symbolIndex, days)];
+    }
+
+    public double max(int symbolIndex, int days) {
+        return maxes[slot(symbolIndex, days)];
+    }
+
+    /**
+     * @return the population standard deviation of the closes of the window
+     */
+    public double standardDeviation(int symbolIndex, int days) {
+        return standardDeviations[slot(symbolIndex, days)];
+    }
+
+    private int slot(int symbolIndex, int days) {
+        if (days < 1 || days > windowDays) {
+            throw new IndexOutOfBoundsException("window of " + days + " days is not supported");
+        }
+        return symbolIndex * windowDays + days - 1;
+    }
+}
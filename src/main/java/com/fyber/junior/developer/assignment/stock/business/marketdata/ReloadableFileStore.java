@@ -0,0 +1,169 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A base class for a store that holds an immutable snapshot parsed from a data file.
+ * The snapshot is replaced only by {@link #reloadIfModified()}, which runs off the request path,
+ * and it is published by a single volatile reference swap.
+ * A file that fails parsing or validation, or that is modified while being parsed,
+ * never replaces the current snapshot.
+ * The outcomes of the reloads are counted, to be published as metrics.
+ * The reload listeners are called with every published snapshot, once it replaced the former one.
+ * @param <T> the type of the immutable snapshot
+ */
+public abstract class ReloadableFileStore<T> {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Path file;
+    private volatile T snapshot;
+    private FileStamp loadedFileStamp;
+    private FileStamp rejectedFileStamp;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final List<Consumer<T>> reloadListeners = new CopyOnWriteArrayList<>();
+
+    protected ReloadableFileStore(Path file, T emptySnapshot) {
+        this.file = file;
+        this.snapshot = emptySnapshot;
+    }
+
+    /**
+     * @return the current snapshot, callers should take it once and use it for the whole request
+     */
+    protected T snapshot() {
+        return snapshot;
+    }
+
+    public void addReloadListener(Consumer<T> reloadListener) {
+        reloadListeners.add(reloadListener);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return how many times a new snapshot was published
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * @return how many times a modified file was rejected for failing parsing or validation
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * @return how many times reading the file failed
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Parses the file again if it was modified since it was last loaded, and publishes the new snapshot
+     * when it is valid.
+     * @return true if a new snapshot was published
+     */
+    public synchronized boolean reloadIfModified() {
+        FileStamp stampBeforeParse = null;
+        try {
+            stampBeforeParse = FileStamp.of(file);
+            if (stampBeforeParse.equals(loadedFileStamp) || stampBeforeParse.equals(rejectedFileStamp)) {
+                return false;
+            }
+
+            T newSnapshot = parse(file);
+
+            //the file was written while we were reading it, the next check will pick up the complete file
+            if (!stampBeforeParse.equals(FileStamp.of(file))) {
+                return false;
+            }
+
+            validate(newSnapshot);
+
+            snapshot = newSnapshot;
+            loadedFileStamp = stampBeforeParse;
+            loads.incrementAndGet();
+            logger.info("Loaded {} from '{}'", describe(newSnapshot), file);
+            for (Consumer<T> reloadListener : reloadListeners) {
+                reloadListener.accept(newSnapshot);
+            }
+            return true;
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            logger.error("Failed reading '{}', keeping the current snapshot", file, e);
+        } catch (IllegalArgumentException e) {
+            //not parsing this version of the file again until it changes
+            rejectedFileStamp = stampBeforeParse;
+            rejections.incrementAndGet();
+            logger.error("Rejected invalid '{}', keeping the current snapshot: {}", file, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * @param file the data file
+     * @return the snapshot parsed from the file
+     * @throws IllegalArgumentException when the content of the file is malformed
+     */
+    protected abstract T parse(Path file) throws IOException;
+
+    /**
+     * Checks that a parsed snapshot is good enough to replace the current one.
+     * @throws IllegalArgumentException when the snapshot must not be published
+     */
+    protected abstract void validate(T newSnapshot);
+
+    protected abstract String describe(T snapshot);
+
+    /**
+     * The modification time and size of a file, used to detect changes.
+     */
+    private static final class FileStamp {
+        private final long modifiedTime;
+        private final long size;
+
+        private FileStamp(long modifiedTime, long size) {
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+        }
+
+        static FileStamp of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return modifiedTime == other.modifiedTime && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(modifiedTime) * 31 + Long.hashCode(size);
+        }
+    }
+}
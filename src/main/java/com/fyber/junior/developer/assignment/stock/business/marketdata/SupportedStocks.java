@@ -0,0 +1,76 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * An immutable snapshot of the stocks symbols supported by the system.
+ * The symbols are kept as a sorted array of interned strings, and every symbol is addressed by its
+ * position in that array. Lookups go through an open addressing hash table of those positions,
+ * so checking a symbol needs no I/O and allocates nothing.
+ */
+public final class SupportedStocks {
+
+    public static final SupportedStocks EMPTY = new SupportedStocks(new TreeSet<String>());
+
+    private final String[] symbols;
+
+    //holds symbol index + 1 for every used slot, 0 for an empty slot
+    private final int[] hashTable;
+    private final int hashMask;
+
+    public SupportedStocks(Collection<String> supportedSymbols) {
+        TreeSet<String> sortedSymbols = new TreeSet<>(supportedSymbols);
+        this.symbols = new String[sortedSymbols.size()];
+        int i = 0;
+        for (String symbol : sortedSymbols) {
+            symbols[i++] = symbol.intern();
+        }
+
+        //a power of two table of at least twice the symbols keeps the probe sequences short
+        int tableSize = Integer.highestOneBit(Math.max(symbols.length, 1) * 2) * 2;
+        this.hashTable = new int[tableSize];
+        this.hashMask = tableSize - 1;
+        for (int symbolIndex = 0; symbolIndex < symbols.length; symbolIndex++) {
+            int slot = slotOf(symbols[symbolIndex]);
+            while (hashTable[slot] != 0) {
+                slot = (slot + 1) & hashMask;
+            }
+            hashTable[slot] = symbolIndex + 1;
+        }
+    }
+
+    /**
+     * @param symbol the stock symbol
+     * @return the index of the symbol among the supported symbols, or -1 when it is not supported
+     */
+    public int indexOf(String symbol) {
+        int slot = slotOf(symbol);
+        int entry;
+        while ((entry = hashTable[slot]) != 0) {
+            String candidate = symbols[entry - 1];
+            if (candidate == symbol || candidate.equals(symbol)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & hashMask;
+        }
+        return -1;
+    }
+
+    public boolean isSupported(String symbol) {
+        return indexOf(symbol) >= 0;
+    }
+
+    public String symbol(int symbolIndex) {
+        return symbols[symbolIndex];
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    private int slotOf(String symbol) {
+        int hash = symbol.hashCode();
+        return (hash ^ (hash >>> 16)) & hashMask;
+    }
+}
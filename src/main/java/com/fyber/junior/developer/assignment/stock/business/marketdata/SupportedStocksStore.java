@@ -0,0 +1,72 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * This component holds the loaded supported stocks symbols.
+ * The supported-stocks file holds comma separated symbols, it is parsed once,
+ * and parsed again by the {@link MarketDataFileWatcher} only when it changes.
+ */
+@Component
+public class SupportedStocksStore extends ReloadableFileStore<SupportedStocks> {
+
+    public SupportedStocksStore(@Value("${stocks.supported.file:supportedStocks.txt}") String supportedStocksFilePath) {
+        super(Paths.get(supportedStocksFilePath), SupportedStocks.EMPTY);
+        reloadIfModified();
+    }
+
+    /**
+     * @return the current supported stocks snapshot
+     */
+    public SupportedStocks getSupportedStocks() {
+        return snapshot();
+    }
+
+    @Override
+    protected SupportedStocks parse(Path file) throws IOException {
+        Set<String> symbols = new LinkedHashSet<>();
+
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+
+                // use comma as separator
+                for (String symbol : line.split(",")) {
+                    symbol = symbol.trim();
+                    if (symbol.isEmpty()) {
+                        continue;
+                    }
+                    for (int i = 0; i < symbol.length(); i++) {
+                        if (symbol.charAt(i) < 'A' || symbol.charAt(i) > 'Z') {
+                            throw new IllegalArgumentException("invalid stock symbol '" + symbol + "'");
+                        }
+                    }
+                    symbols.add(symbol);
+                }
+            }
+        }
+        return new SupportedStocks(symbols);
+    }
+
+    @Override
+    protected void validate(SupportedStocks newSupportedStocks) {
+        if (newSupportedStocks.size() == 0) {
+            throw new IllegalArgumentException("no supported stocks found");
+        }
+    }
+
+    @Override
+    protected String describe(SupportedStocks supportedStocks) {
+        return supportedStocks.size() + " supported stocks";
+    }
+}
@@ -0,0 +1,38 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of ingesting a batch of ticks, the amounts of accepted, stale and rejected ticks
+ * and the reason the first tick was rejected. A stale tick is valid but did not change the stock's latest price.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TickIngestionResult {
+    private final long accepted;
+    private final long stale;
+    private final long rejected;
+    private final String error;
+
+    public TickIngestionResult(long accepted, long stale, long rejected, String error) {
+        this.accepted = accepted;
+        this.stale = stale;
+        this.rejected = rejected;
+        this.error = error;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getStale() {
+        return stale;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,54 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The recent ticks of a single stock, overwriting the oldest tick once full.
+ * Every writer claims its slot with a single atomic increment, so any number of threads add ticks without
+ * locking or waiting for each other. The ticks are immutable, so a reader never sees half of a tick.
+ */
+final class TickRingBuffer {
+    private final AtomicReferenceArray<PriceTick> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @param capacity the amount of ticks kept, rounded up to a power of two
+     */
+    TickRingBuffer(int capacity) {
+        int slotCount = 1;
+        while (slotCount < capacity) {
+            slotCount <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+    }
+
+    void add(PriceTick tick) {
+        long sequence = nextSequence.getAndIncrement();
+
+        //an ordered store is enough, the readers look for recent ticks and not for the very last one
+        slots.lazySet((int) sequence & mask, tick);
+    }
+
+    /**
+     * @param limit the most ticks to return
+     * @return the recent ticks in the order they arrived, the newest first. A slot that was claimed
+     *         but not written yet is skipped, or holds the tick it is about to replace
+     */
+    List<PriceTick> recent(int limit) {
+        long endSequence = nextSequence.get();
+        long startSequence = Math.max(0, endSequence - slots.length());
+        List<PriceTick> recentTicks = new ArrayList<>((int) Math.min(limit, endSequence - startSequence));
+        for (long sequence = endSequence - 1; sequence >= startSequence && recentTicks.size() < limit; sequence--) {
+            PriceTick tick = slots.get((int) sequence & mask);
+            if (tick != null) {
+                recentTicks.add(tick);
+            }
+        }
+        return recentTicks;
+    }
+}
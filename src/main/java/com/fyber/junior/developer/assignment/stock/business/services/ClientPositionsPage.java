@@ -0,0 +1,154 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The positions of a page of clients, kept as primitive columns: the clients' ids in ascending order,
+ * the offsets of every client's positions, and the symbol index and the amount of every position.
+ * The symbols are resolved to their index in the price snapshot once, when the page is built, so valuing
+ * the page is a loop over the columns that never boxes or looks anything up.
+ */
+final class ClientPositionsPage {
+
+    //below this many positions a range of clients is valued on the calling thread
+    static final int SEQUENTIAL_POSITIONS = 8192;
+
+    private final long[] clientIds;
+    private final int[] positionOffsets;
+    private final int[] symbolIndexes;
+    private final int[] amounts;
+    private final String[] symbols;
+
+    ClientPositionsPage(long[] clientIds, int[] positionOffsets, int[] symbolIndexes, int[] amounts,
+                                String[] symbols) {
+        this.clientIds = clientIds;
+        this.positionOffsets = positionOffsets;
+        this.symbolIndexes = symbolIndexes;
+        this.amounts = amounts;
+        this.symbols = symbols;
+    }
+
+    /**
+     * @param rows the rows of {@link com.fyber.junior.developer.assignment.stock.model.repository.ClientRepository#findPositionsByClientIds},
+     *             ordered by the client's id
+     * @param priceHistory the snapshot to resolve the symbols with, a symbol it does not hold gets the index -1
+     */
+    static ClientPositionsPage of(List<Object[]> rows, PriceHistory priceHistory) {
+        long[] clientIds = new long[rows.size()];
+        int[] positionOffsets = new int[rows.size() + 1];
+        int[] symbolIndexes = new int[rows.size()];
+        int[] amounts = new int[rows.size()];
+        String[] symbols = new String[rows.size()];
+        int clients = 0;
+        int positions = 0;
+
+        for (Object[] row : rows) {
+            long clientId = (Long) row[0];
+            if (clients == 0 || clientIds[clients - 1] != clientId) {
+                clientIds[clients++] = clientId;
+            }
+
+            //a client without stocks has a single row without a symbol
+            if (row[1] != null) {
+                symbols[positions] = (String) row[1];
+                symbolIndexes[positions] = priceHistory.indexOf(symbols[positions]);
+                amounts[positions] = (Integer) row[2];
+                positions++;
+            }
+            positionOffsets[clients] = positions;
+        }
+        return new ClientPositionsPage(Arrays.copyOf(clientIds, clients), Arrays.copyOf(positionOffsets, clients + 1),
+                symbolIndexes, amounts, symbols);
+    }
+
+    int clientCount() {
+        return clientIds.length;
+    }
+
+    /**
+     * @return the position of the client in this page, or a negative number when the page does not hold it
+     */
+    int indexOf(long clientId) {
+        return Arrays.binarySearch(clientIds, clientId);
+    }
+
+    long clientId(int client) {
+        return clientIds[client];
+    }
+
+    int positionCount(int client) {
+        return positionOffsets[client + 1] - positionOffsets[client];
+    }
+
+    /**
+     * @return the first symbol of the client that has no price, or null when all of them have one
+     */
+    String unpricedSymbol(int client) {
+        for (int position = positionOffsets[client]; position < positionOffsets[client + 1]; position++) {
+            if (symbolIndexes[position] < 0) {
+                return symbols[position];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Values every client of the page, splitting the clients into ranges that are valued in parallel
+     * on the common fork/join pool when the page is large enough.
+     * @param latestCloses the latest close of every symbol of the price snapshot, by the symbol's index
+     * @return the value of every client, by the client's position in the page,
+     *         NaN for a client holding a stock without a price
+     */
+    double[] value(double[] latestCloses) {
+        double[] values = new double[clientIds.length];
+        ValueTask task = new ValueTask(latestCloses, values, 0, clientIds.length);
+        if (positionOffsets[clientIds.length] <= SEQUENTIAL_POSITIONS) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return values;
+    }
+
+    /**
+     * Values a range of the page's clients, the range is split in halves until it holds few enough positions.
+     */
+    private final class ValueTask extends RecursiveAction {
+        private final double[] latestCloses;
+        private final double[] values;
+        private final int fromClient;
+        private final int toClient;
+
+        private ValueTask(double[] latestCloses, double[] values, int fromClient, int toClient) {
+            this.latestCloses = latestCloses;
+            this.values = values;
+            this.fromClient = fromClient;
+            this.toClient = toClient;
+        }
+
+        @Override
+        protected void compute() {
+            if (toClient - fromClient > 1 &&
+                    positionOffsets[toClient] - positionOffsets[fromClient] > SEQUENTIAL_POSITIONS) {
+                int middleClient = (fromClient + toClient) >>> 1;
+                invokeAll(new ValueTask(latestCloses, values, fromClient, middleClient),
+                        new ValueTask(latestCloses, values, middleClient, toClient));
+                return;
+            }
+
+            for (int client = fromClient; client < toClient; client++) {
+                double value = 0.0;
+                for (int position = positionOffsets[client]; position < positionOffsets[client + 1]; position++) {
+                    int symbolIndex = symbolIndexes[position];
+                    value += symbolIndex < 0 ? Double.NaN : amounts[position] * latestCloses[symbolIndex];
+                }
+                values[client] = value;
+            }
+        }
+    }
+}
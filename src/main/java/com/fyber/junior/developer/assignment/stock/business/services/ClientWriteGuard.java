@@ -0,0 +1,90 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the writes of every client's portfolio while the writes of different clients run in parallel.
+ * The clients are spread over a fixed number of lock stripes by their id, so two clients share a lock only
+ * when they fall in the same stripe, and the memory used does not depend on the amount of clients.
+ * The lock covers a single app instance only. Writes from other instances are detected by the client's version,
+ * and a write that lost to another one is retried up to "portfolio.write.max-attempts" times in total.
+ * "portfolio.write.conflicts" counts the retried and the failed writes.
+ */
+@Component
+public class ClientWriteGuard {
+    private final ReentrantLock[] stripes;
+    private final int maxAttempts;
+    private final Counter retried;
+    private final Counter failed;
+
+    @Autowired
+    public ClientWriteGuard(MeterRegistry meterRegistry,
+                            @Value("${portfolio.write.lock-stripes:64}") int lockStripes,
+                            @Value("${portfolio.write.max-attempts:3}") int maxAttempts) {
+
+        //a power of two, so a stripe is picked with a mask
+        int stripeCount = 1;
+        while (stripeCount < lockStripes) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retried = conflicts(meterRegistry, "retried");
+        this.failed = conflicts(meterRegistry, "failed");
+    }
+
+    private static Counter conflicts(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("portfolio.write.conflicts")
+                .description("Portfolio writes that lost to a concurrent write of the same client")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * This guard method is responsible to run a write of the client's portfolio holding the client's lock,
+     * retrying it while it loses to concurrent writes.
+     * @param clientId the client whose portfolio is written
+     * @param write the write, it has to run in its own transaction so a retry starts from a fresh one
+     * @return the write's result
+     * @throws ConflictException when the last attempt lost too
+     */
+    public <T> T write(long clientId, Supplier<T> write) {
+        ReentrantLock lock = stripes[stripe(clientId)];
+        lock.lock();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return write.get();
+                } catch (OptimisticLockingFailureException e) {
+                    if (attempt == maxAttempts) {
+                        failed.increment();
+                        throw new ConflictException("the portfolio of client id '" + clientId +
+                                "' was changed by a concurrent request, please try again");
+                    }
+                    retried.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int stripe(long clientId) {
+
+        //spreading the bits of the id, sequential ids would otherwise map to sequential stripes only
+        long hash = clientId * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (stripes.length - 1);
+    }
+}
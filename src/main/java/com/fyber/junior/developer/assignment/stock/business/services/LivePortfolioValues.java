@@ -0,0 +1,302 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceTickListener;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.InternalServerErrorException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The live values of the clients' portfolios, priced by the latest ticks of the {@link LivePriceBook}
+ * and by the latest close of the price history for stocks without ticks.
+ * A client is tracked from the first time his live value is asked for, up to "portfolio.live.max-clients"
+ * clients. A reverse index from every stock to the tracked clients holding it lets a tick add the change
+ * of the stock's price, times the amount held, to the value of every holder, instead of valuing the holders'
+ * portfolios again. The clients are untracked when their portfolio changes, and all of them are untracked as soon
+ * as a price history is loaded. "portfolio.live.clients" is the amount of tracked clients.
+ * The {@link PortfolioValueListener}s are told about every change of the value of a watched client.
+ */
+@Component
+public class LivePortfolioValues implements PriceTickListener {
+    private final LivePriceBook livePriceBook;
+    private final PriceHistoryStore priceHistoryStore;
+    private final int maxClients;
+    private final ConcurrentHashMap<Long, LivePortfolio> portfolios = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SymbolHolders> holdersBySymbol = new ConcurrentHashMap<>();
+    private final List<PortfolioValueListener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<Long> watchedClients = new HashSet<>();
+
+    //counts the untracked clients, a load that raced with an untracking is not tracked
+    private final AtomicLong untracked = new AtomicLong();
+    private volatile PriceHistory trackedPriceHistory;
+
+    @Autowired
+    public LivePortfolioValues(LivePriceBook livePriceBook, PriceHistoryStore priceHistoryStore,
+                               MeterRegistry meterRegistry,
+                               @Value("${portfolio.live.max-clients:100000}") int maxClients) {
+        this.livePriceBook = livePriceBook;
+        this.priceHistoryStore = priceHistoryStore;
+        this.maxClients = maxClients;
+        this.trackedPriceHistory = priceHistoryStore.getPriceHistory();
+        Gauge.builder("portfolio.live.clients", portfolios, ConcurrentHashMap::size)
+                .description("Clients whose live portfolio value is updated by the ticks")
+                .register(meterRegistry);
+        livePriceBook.addListener(this);
+    }
+
+    /**
+     * @param clientId the client of which to return his live portfolio value
+     * @param positionsLoader loads the client's positions when he is not tracked
+     * @return the client's live portfolio value
+     */
+    public double getValue(long clientId, Supplier<List<StockPosition>> positionsLoader) {
+        LivePortfolio portfolio = portfolios.get(clientId);
+
+        //a portfolio tracked with a former price history is valued again, in case its reload is still being handled
+        if (portfolio != null && trackedPriceHistory == priceHistoryStore.getPriceHistory()) {
+            return portfolio.value();
+        }
+        long untrackedBeforeLoad = untracked.get();
+        List<StockPosition> positions = positionsLoader.get();
+        return track(clientId, positions, untrackedBeforeLoad);
+    }
+
+    public void addListener(PortfolioValueListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts telling the listeners about the changes of the client's value, the client is watched
+     * also while he is not tracked, and from the next time he is.
+     */
+    public synchronized void watch(long clientId) {
+        watchedClients.add(clientId);
+        LivePortfolio portfolio = portfolios.get(clientId);
+        if (portfolio != null) {
+            portfolio.watched = true;
+        }
+    }
+
+    public synchronized void unwatch(long clientId) {
+        watchedClients.remove(clientId);
+        LivePortfolio portfolio = portfolios.get(clientId);
+        if (portfolio != null) {
+            portfolio.watched = false;
+        }
+    }
+
+    /**
+     * Untracks the client once the current transaction commits, or immediately when there is no transaction.
+     * @param clientId the client whose portfolio changed
+     */
+    public void untrackAfterCommit(long clientId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    untrack(clientId);
+                }
+            });
+        } else {
+            untrack(clientId);
+        }
+    }
+
+    @Override
+    public void priceChanged(String symbol, double price) {
+        SymbolHolders holders = holdersBySymbol.get(symbol);
+        if (holders != null) {
+            holders.priceChanged(price);
+        }
+    }
+
+    @Override
+    public synchronized void priceHistoryReloaded(PriceHistory priceHistory) {
+        untrackAll(priceHistory);
+    }
+
+    /**
+     * This aid method is responsible to value a loaded portfolio and to track it, unless the loaded positions
+     * may be outdated or there are too many tracked clients already.
+     */
+    private synchronized double track(long clientId, List<StockPosition> positions, long untrackedBeforeLoad) {
+        PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+        if (priceHistory != trackedPriceHistory) {
+            untrackAll(priceHistory);
+        }
+
+        //validating every stock has a price before adding the client to any of the stocks' holders
+        for (StockPosition position : positions) {
+            if (Double.isNaN(latestPrice(position.getStockSymbol(), priceHistory))) {
+                throw new InternalServerErrorException("No price history found for stock '" +
+                        position.getStockSymbol() + "'");
+            }
+        }
+
+        LivePortfolio tracked = portfolios.get(clientId);
+        if (tracked != null) {
+            return tracked.value();
+        }
+        if (untracked.get() != untrackedBeforeLoad || portfolios.size() >= maxClients) {
+            double value = 0.0;
+            for (StockPosition position : positions) {
+                value += position.getStockAmount() * latestPrice(position.getStockSymbol(), priceHistory);
+            }
+            return value;
+        }
+
+        LivePortfolio portfolio = new LivePortfolio(clientId, positions);
+        portfolio.watched = watchedClients.contains(clientId);
+        for (StockPosition position : positions) {
+            holdersBySymbol.computeIfAbsent(position.getStockSymbol(), symbol -> new SymbolHolders(symbol))
+                    .add(portfolio, position.getStockAmount(), priceHistory);
+        }
+        portfolios.put(clientId, portfolio);
+        return portfolio.value();
+    }
+
+    /**
+     * This aid method is responsible to untrack every client, as the tracked values hold the closes
+     * of the former price history, and to tell the listeners about all of the watched clients.
+     */
+    private void untrackAll(PriceHistory priceHistory) {
+        untracked.incrementAndGet();
+        portfolios.clear();
+        holdersBySymbol.clear();
+        trackedPriceHistory = priceHistory;
+        watchedClients.forEach(this::valueChanged);
+    }
+
+    private synchronized void untrack(long clientId) {
+        untracked.incrementAndGet();
+        LivePortfolio portfolio = portfolios.remove(clientId);
+        if (portfolio != null) {
+            for (String symbol : portfolio.symbols) {
+                holdersBySymbol.get(symbol).remove(portfolio);
+            }
+        }
+        if (watchedClients.contains(clientId)) {
+            valueChanged(clientId);
+        }
+    }
+
+    private void valueChanged(long clientId) {
+        for (PortfolioValueListener listener : listeners) {
+            listener.valueChanged(clientId);
+        }
+    }
+
+    /**
+     * @return the stock's latest tick price, or its latest close when it has no ticks, or NaN when it has neither
+     */
+    private double latestPrice(String symbol, PriceHistory priceHistory) {
+        double price = livePriceBook.latestPrice(symbol);
+        if (Double.isNaN(price)) {
+            int symbolIndex = priceHistory.indexOf(symbol);
+            price = symbolIndex < 0 ? Double.NaN : priceHistory.latestClose(symbolIndex);
+        }
+        return price;
+    }
+
+    /**
+     * The live value of a tracked client, changed concurrently by the ticks of all of his stocks.
+     */
+    private static final class LivePortfolio {
+        private final long clientId;
+        private final String[] symbols;
+        private final AtomicLong valueBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+        private volatile boolean watched;
+
+        private LivePortfolio(long clientId, List<StockPosition> positions) {
+            this.clientId = clientId;
+            this.symbols = new String[positions.size()];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = positions.get(i).getStockSymbol();
+            }
+        }
+
+        double value() {
+            return Double.longBitsToDouble(valueBits.get());
+        }
+
+        void add(double delta) {
+            long bits;
+            do {
+                bits = valueBits.get();
+            } while (!valueBits.compareAndSet(bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + delta)));
+        }
+    }
+
+    /**
+     * The tracked clients holding a single stock and their amounts, kept as growable arrays,
+     * together with the stock's price that their values include.
+     * A holder is added with the price the holders have, so a tick in flight adds only the change from that price.
+     */
+    private final class SymbolHolders {
+        private final String symbol;
+        private double price = Double.NaN;
+        private LivePortfolio[] holders = new LivePortfolio[4];
+        private int[] amounts = new int[4];
+        private int size;
+
+        private SymbolHolders(String symbol) {
+            this.symbol = symbol;
+        }
+
+        synchronized void add(LivePortfolio portfolio, int amount, PriceHistory priceHistory) {
+            if (Double.isNaN(price)) {
+                price = latestPrice(symbol, priceHistory);
+            }
+            if (size == holders.length) {
+                holders = Arrays.copyOf(holders, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            holders[size] = portfolio;
+            amounts[size] = amount;
+            size++;
+            portfolio.add(amount * price);
+        }
+
+        synchronized void remove(LivePortfolio portfolio) {
+            for (int i = 0; i < size; i++) {
+                if (holders[i] == portfolio) {
+                    size--;
+                    holders[i] = holders[size];
+                    amounts[i] = amounts[size];
+                    holders[size] = null;
+                    return;
+                }
+            }
+        }
+
+        synchronized void priceChanged(double newPrice) {
+            if (!Double.isNaN(price)) {
+                double delta = newPrice - price;
+                for (int i = 0; i < size; i++) {
+                    holders[i].add(amounts[i] * delta);
+                    if (holders[i].watched) {
+                        valueChanged(holders[i].clientId);
+                    }
+                }
+            }
+            price = newPrice;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceWindowStats;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The recommendations calculated over a portfolio's stocks and a price snapshot, shared by the single client
+ * queries of the {@link PortfolioService} and the whole book export of the {@link PortfolioExportService}.
+ */
+final class PortfolioAnalytics {
+
+    private PortfolioAnalytics() {
+    }
+
+    /**
+     * @return the symbol of the stock that raised the most in value in the window, or null if none of them raised
+     */
+    static String mostPerformingStock(List<StockPosition> clientStocks, PriceHistory priceHistory, HistoryWindow window) {
+        String performingStock = null;
+        double highestStockDiff = 0.0;
+
+        //For each of the client's stock,calculating the difference in value
+        for (StockPosition clientStock : clientStocks) {
+            int symbolIndex = priceHistory.indexOf(clientStock.getStockSymbol());
+            if (symbolIndex < 0) {
+                continue;
+            }
+            int newestDaysBack = window.newestDaysBack(priceHistory, symbolIndex);
+            int oldestDaysBack = window.oldestDaysBack(priceHistory, symbolIndex);
+            if (newestDaysBack < 0 || oldestDaysBack < newestDaysBack) {
+                continue;
+            }
+            double currentStockDiff = performance(priceHistory, symbolIndex, newestDaysBack, oldestDaysBack);
+            if (highestStockDiff < currentStockDiff) {
+                highestStockDiff = currentStockDiff;
+                performingStock = clientStock.getStockSymbol();
+            }
+        }
+        return performingStock;
+    }
+
+    /**
+     * @return the symbol of the stock with the least value fluctuation in the window,
+     * or null if none of them has closes in the window
+     */
+    static String mostStableStock(List<StockPosition> clientStocks, PriceHistory priceHistory, HistoryWindow window) {
+        String stableStock = null;
+        double lowestFluctuation = Double.MAX_VALUE;
+
+        //For each of the client's stock,calculating the fluctuation (max - min) in value
+        for (StockPosition clientStock : clientStocks) {
+            int symbolIndex = priceHistory.indexOf(clientStock.getStockSymbol());
+            if (symbolIndex < 0) {
+                continue;
+            }
+            int newestDaysBack = window.newestDaysBack(priceHistory, symbolIndex);
+            int oldestDaysBack = window.oldestDaysBack(priceHistory, symbolIndex);
+            if (newestDaysBack < 0 || oldestDaysBack < newestDaysBack) {
+                continue;
+            }
+            double fluctuation = fluctuation(priceHistory, symbolIndex, newestDaysBack, oldestDaysBack);
+            if (fluctuation < lowestFluctuation) {
+                lowestFluctuation = fluctuation;
+                stableStock = clientStock.getStockSymbol();
+            }
+        }
+        return stableStock;
+    }
+
+    /**
+     * @return the difference in value between the oldest and the newest close of the window,
+     * read from the precalculated statistics when the window ends at the latest close
+     */
+    private static double performance(PriceHistory priceHistory, int symbolIndex, int newestDaysBack, int oldestDaysBack) {
+        PriceWindowStats windowStats = priceHistory.windowStats();
+        if (newestDaysBack == 0 && oldestDaysBack < windowStats.windowDays()) {
+            return windowStats.delta(symbolIndex, oldestDaysBack + 1);
+        }
+        return priceHistory.close(symbolIndex, newestDaysBack) - priceHistory.close(symbolIndex, oldestDaysBack);
+    }
+
+    /**
+     * @return the highest close minus the lowest close of the window,
+     * read from the precalculated statistics when the window ends at the latest close
+     */
+    private static double fluctuation(PriceHistory priceHistory, int symbolIndex, int newestDaysBack, int oldestDaysBack) {
+        PriceWindowStats windowStats = priceHistory.windowStats();
+        if (newestDaysBack == 0 && oldestDaysBack < windowStats.windowDays()) {
+            return windowStats.range(symbolIndex, oldestDaysBack + 1);
+        }
+        double max = priceHistory.close(symbolIndex, newestDaysBack);
+        double min = max;
+        for (int daysBack = newestDaysBack + 1; daysBack <= oldestDaysBack; daysBack++) {
+            double close = priceHistory.close(symbolIndex, daysBack);
+            if (close > max) {
+                max = close;
+            } else if (close < min) {
+                min = close;
+            }
+        }
+        return max - min;
+    }
+
+    /**
+     * The part of a symbol's history that a query looks at, resolved per symbol to the days back
+     * of its newest and oldest closes.
+     * A trailing window holds the latest closes of the symbol, a dated window holds the closes between two dates
+     * and is resolved with a binary search over the symbol's epoch days.
+     */
+    static final class HistoryWindow {
+        private final int pastDays;
+        private final int fromEpochDay;
+        private final int toEpochDay;
+
+        private HistoryWindow(int pastDays, int fromEpochDay, int toEpochDay) {
+            this.pastDays = pastDays;
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+        }
+
+        static HistoryWindow trailing(int pastDays) {
+            return new HistoryWindow(pastDays, 0, 0);
+        }
+
+        static HistoryWindow between(LocalDate from, LocalDate to) {
+            return new HistoryWindow(0, (int) from.toEpochDay(), (int) to.toEpochDay());
+        }
+
+        /**
+         * @return the days back of the newest close in the window, or -1 when there is none
+         */
+        int newestDaysBack(PriceHistory priceHistory, int symbolIndex) {
+            if (pastDays > 0) {
+                return 0;
+            }
+            return priceHistory.daysBackOnOrBefore(symbolIndex, toEpochDay);
+        }
+
+        /**
+         * @return the days back of the oldest close in the window, or -1 when there is none
+         */
+        int oldestDaysBack(PriceHistory priceHistory, int symbolIndex) {
+            if (pastDays > 0) {
+                return priceHistory.historyLength(symbolIndex) < pastDays ? -1 : pastDays - 1;
+            }
+            return priceHistory.daysBackOnOrAfter(symbolIndex, fromEpochDay);
+        }
+    }
+}
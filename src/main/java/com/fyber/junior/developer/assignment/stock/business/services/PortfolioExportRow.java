@@ -0,0 +1,62 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * The analytics of a single client in the whole book export: the portfolio value and the most performing
+ * and most stable stocks, or the reason the portfolio could not be valued.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"clientId", "value", "mostPerformingStock", "mostStableStock", "error"})
+public class PortfolioExportRow {
+
+    public static final String CSV_HEADER = "clientId,value,mostPerformingStock,mostStableStock,error";
+
+    private final long clientId;
+    private final Double value;
+    private final String mostPerformingStock;
+    private final String mostStableStock;
+    private final String error;
+
+    PortfolioExportRow(long clientId, Double value, String mostPerformingStock, String mostStableStock, String error) {
+        this.clientId = clientId;
+        this.value = value;
+        this.mostPerformingStock = mostPerformingStock;
+        this.mostStableStock = mostStableStock;
+        this.error = error;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    /**
+     * @return the stock that raised the most in value, or null when none of the stocks raised
+     */
+    public String getMostPerformingStock() {
+        return mostPerformingStock;
+    }
+
+    public String getMostStableStock() {
+        return mostStableStock;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the row in the columns of {@link #CSV_HEADER}, the error is quoted as it is free text
+     */
+    public String toCsv() {
+        return clientId + "," + (value == null ? "" : value) + "," +
+                (mostPerformingStock == null ? "" : mostPerformingStock) + "," +
+                (mostStableStock == null ? "" : mostStableStock) + "," +
+                (error == null ? "" : "\"" + error.replace("\"", "\"\"") + "\"");
+    }
+}
@@ -0,0 +1,95 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioAnalytics.HistoryWindow;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import com.fyber.junior.developer.assignment.stock.model.repository.StockRepository;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * This service responsible to export the analytics of every client in the book.
+ * The stocks table is read once, ordered by the client, through a forward only cursor, and the rows are grouped
+ * into the clients' portfolios on the fly. Every portfolio is reported as soon as its last row was read and only
+ * the current client's stocks are held, so memory stays flat regardless of the amount of clients.
+ */
+@Service
+public class PortfolioExportService {
+    private StockRepository stockRepository;
+    private PriceHistoryStore priceHistoryStore;
+
+    //Dependency Injection
+    @Autowired
+    public PortfolioExportService(StockRepository stockRepository, PriceHistoryStore priceHistoryStore) {
+        this.stockRepository = stockRepository;
+        this.priceHistoryStore = priceHistoryStore;
+    }
+
+    /**
+     * This service method is responsible to calculate the value, the most performing stock and the most stable
+     * stock of every client holding stocks, all of them with the same price snapshot.
+     * The cursor is read in a single read only transaction, which lasts until the last row was reported.
+     * @param pastDays how many days to go back in the history of the stocks values
+     * @param rowConsumer receives a row for every client, in the order of the clients' ids
+     */
+    @Transactional(readOnly = true)
+    public void exportPortfolios(int pastDays, Consumer<PortfolioExportRow> rowConsumer) {
+
+        //taking a single price snapshot for the whole export
+        PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+
+        //the recommendations of the single client queries have the same limits
+        if (pastDays > priceHistory.longestHistoryLength()) {
+            throw new BadArgumentException("number of days '" + pastDays + "' is currently not supported");
+        } else if (pastDays < 2) {
+            throw new BadArgumentException("the minimum past days for this function: '2' ");
+        }
+        HistoryWindow window = HistoryWindow.trailing(pastDays);
+
+        List<StockPosition> clientStocks = new ArrayList<>();
+        try (Stream<StockPosition> stocks = stockRepository.streamAllPositionsOrderedByClientId()) {
+            Iterator<StockPosition> stocksIterator = stocks.iterator();
+            while (stocksIterator.hasNext()) {
+                StockPosition stock = stocksIterator.next();
+                if (!clientStocks.isEmpty() && clientStocks.get(0).getClientId() != stock.getClientId()) {
+                    rowConsumer.accept(exportRow(clientStocks, priceHistory, window));
+                    clientStocks.clear();
+                }
+                clientStocks.add(stock);
+            }
+        }
+        if (!clientStocks.isEmpty()) {
+            rowConsumer.accept(exportRow(clientStocks, priceHistory, window));
+        }
+    }
+
+    /**
+     * This aid method is responsible to calculate the analytics of a single client's portfolio.
+     */
+    private static PortfolioExportRow exportRow(List<StockPosition> clientStocks, PriceHistory priceHistory,
+                                                HistoryWindow window) {
+        long clientId = clientStocks.get(0).getClientId();
+        String mostPerformingStock = PortfolioAnalytics.mostPerformingStock(clientStocks, priceHistory, window);
+        String mostStableStock = PortfolioAnalytics.mostStableStock(clientStocks, priceHistory, window);
+
+        double portfolioValue = 0.0;
+        for (StockPosition clientStock : clientStocks) {
+            int symbolIndex = priceHistory.indexOf(clientStock.getStockSymbol());
+            if (symbolIndex < 0) {
+                return new PortfolioExportRow(clientId, null, mostPerformingStock, mostStableStock,
+                        "No price history found for stock '" + clientStock.getStockSymbol() + "'");
+            }
+            portfolioValue += clientStock.getStockAmount() * priceHistory.latestClose(symbolIndex);
+        }
+        return new PortfolioExportRow(clientId, portfolioValue, mostPerformingStock, mostStableStock, null);
+    }
+}
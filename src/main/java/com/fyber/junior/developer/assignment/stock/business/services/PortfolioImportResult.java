@@ -0,0 +1,42 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of importing a single portfolio, either the new client's id or the reason it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PortfolioImportResult {
+    private final long index;
+    private final Long clientId;
+    private final String error;
+
+    private PortfolioImportResult(long index, Long clientId, String error) {
+        this.index = index;
+        this.clientId = clientId;
+        this.error = error;
+    }
+
+    public static PortfolioImportResult imported(long index, long clientId) {
+        return new PortfolioImportResult(index, clientId, null);
+    }
+
+    public static PortfolioImportResult rejected(long index, String error) {
+        return new PortfolioImportResult(index, null, error);
+    }
+
+    /**
+     * @return the position of the portfolio in the imported input
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
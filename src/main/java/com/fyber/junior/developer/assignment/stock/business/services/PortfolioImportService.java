@@ -0,0 +1,118 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocks;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocksStore;
+import com.fyber.junior.developer.assignment.stock.business.validator.PortfolioValidator;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This service responsible to import a large amount of new clients portfolios.
+ * The portfolios are consumed one by one from a stream, and the valid ones are saved in chunks,
+ * every chunk in its own transaction, so memory stays flat regardless of the amount of portfolios.
+ */
+@Service
+public class PortfolioImportService {
+    private PortfolioService portfolioService;
+    private SupportedStocksStore supportedStocksStore;
+    private PortfolioMetrics portfolioMetrics;
+    private int chunkSize;
+
+    //Dependency Injection
+    @Autowired
+    public PortfolioImportService(PortfolioService portfolioService, SupportedStocksStore supportedStocksStore,
+                                  PortfolioMetrics portfolioMetrics,
+                                  @Value("${portfolio.import.chunk-size:500}") int chunkSize) {
+        this.portfolioService = portfolioService;
+        this.supportedStocksStore = supportedStocksStore;
+        this.portfolioMetrics = portfolioMetrics;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * This service method is responsible to validate and save every incoming portfolio as a new client.
+     * A rejected portfolio does not stop the import, it is reported with the reason it was rejected.
+     * A failure to read the incoming portfolios stops the import, after the portfolios read before it were saved
+     * and reported, and is thrown as is.
+     * @param portfolios the incoming portfolios
+     * @param resultConsumer receives a result for every portfolio in the incoming order,
+     *                       after the chunk holding the portfolio was committed
+     */
+    public void importPortfolios(Iterator<List<Stock>> portfolios, Consumer<PortfolioImportResult> resultConsumer) {
+        SupportedStocks supportedStocks = supportedStocksStore.getSupportedStocks();
+        List<List<Stock>> chunk = new ArrayList<>(chunkSize);
+        List<PortfolioImportResult> rejected = new ArrayList<>();
+        long firstIndexInChunk = 0;
+        long index = 0;
+
+        while (true) {
+            List<Stock> portfolio;
+            try {
+                if (!portfolios.hasNext()) {
+                    break;
+                }
+                portfolio = portfolios.next();
+            } catch (RuntimeException e) {
+
+                //the portfolios read before a broken input are still imported, so the input can be resumed after them
+                saveChunk(chunk, rejected, firstIndexInChunk, resultConsumer);
+                throw e;
+            }
+
+            try {
+                if (portfolio == null || portfolio.isEmpty()) {
+                    portfolioMetrics.validationFailed(PortfolioMetrics.EMPTY_PORTFOLIO);
+                    throw new BadArgumentException("no stocks found at your request");
+                }
+                PortfolioValidator.validatePortfolio(portfolio, false, supportedStocks);
+                chunk.add(portfolio);
+            } catch (BadArgumentException e) {
+                if (e instanceof PortfolioValidationException) {
+                    portfolioMetrics.validationFailed((PortfolioValidationException) e);
+                }
+                rejected.add(PortfolioImportResult.rejected(index, e.getMessage()));
+            }
+            index++;
+
+            if (chunk.size() + rejected.size() == chunkSize) {
+                saveChunk(chunk, rejected, firstIndexInChunk, resultConsumer);
+                firstIndexInChunk = index;
+            }
+        }
+        saveChunk(chunk, rejected, firstIndexInChunk, resultConsumer);
+    }
+
+    /**
+     * This aid method is responsible to save a chunk of valid portfolios and to report them,
+     * merged in the incoming order with the portfolios rejected in the same range.
+     */
+    private void saveChunk(List<List<Stock>> chunk, List<PortfolioImportResult> rejected, long firstIndexInChunk,
+                           Consumer<PortfolioImportResult> resultConsumer) {
+        List<Long> clientIds = chunk.isEmpty() ? new ArrayList<>() : portfolioService.addNewClientPortfolios(chunk);
+
+        long index = firstIndexInChunk;
+        int savedPosition = 0;
+        int rejectedPosition = 0;
+        while (savedPosition < clientIds.size() || rejectedPosition < rejected.size()) {
+            if (rejectedPosition < rejected.size() && rejected.get(rejectedPosition).getIndex() == index) {
+                resultConsumer.accept(rejected.get(rejectedPosition++));
+            } else {
+                resultConsumer.accept(PortfolioImportResult.imported(index, clientIds.get(savedPosition++)));
+            }
+            index++;
+        }
+
+        chunk.clear();
+        rejected.clear();
+    }
+}
@@ -1,43 +1,78 @@
 package com.fyber.junior.developer.assignment.stock.business.services;
 
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocksStore;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioAnalytics.HistoryWindow;
 import com.fyber.junior.developer.assignment.stock.business.validator.PortfolioValidator;
 import com.fyber.junior.developer.assignment.stock.model.entity.Client;
 import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
 import com.fyber.junior.developer.assignment.stock.model.repository.ClientRepository;
 import com.fyber.junior.developer.assignment.stock.model.repository.StockRepository;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics.ServiceCall;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics.Stage;
 import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
 import com.fyber.junior.developer.assignment.stock.rest.Exceptions.EntityNotFoundException;
-import com.fyber.junior.developer.assignment.stock.rest.Exceptions.InternalServerErrorException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * This service responsible to manage all of the logic required while working with the clients portfolios.
+ * Every public method is timed, together with its validate, price lookup, database and compute stages,
+ * by the {@link PortfolioMetrics}.
+ * The writes of an existing client's portfolio run one at a time per client, see {@link ClientWriteGuard},
+ * each attempt in its own transaction that increments the client's version.
+ * The reads run in read only transactions and load the client's positions as {@link StockPosition} projections,
+ * so hibernate neither flushes nor dirty checks anything, and they can be routed to a read replica.
+ * The cached values are the exception, their positions are always loaded from the primary.
+ * When the {@link PositionIndex} is loaded the positions are read from it instead, and every write updates it.
  */
 @Service
 @Transactional
 public class PortfolioService {
-    private String stockCSVFilePath = "stocks.csv";
-    private int supportedStockHistoryInDays = 8;
-    private int numberOfCharactersInAFileRowLimit = 100;
     private ClientRepository clientRepository;
     private StockRepository stockRepository;
+    private PriceHistoryStore priceHistoryStore;
+    private SupportedStocksStore supportedStocksStore;
+    private PortfolioValueCache portfolioValueCache;
+    private LivePortfolioValues livePortfolioValues;
+    private PositionIndex positionIndex;
+    private PortfolioMetrics portfolioMetrics;
+    private ClientWriteGuard clientWriteGuard;
+    private TransactionTemplate transactionTemplate;
 
     //Dependency Injection
     @Autowired
-    public PortfolioService(ClientRepository clientRepository, StockRepository stockRepository) {
+    public PortfolioService(ClientRepository clientRepository, StockRepository stockRepository,
+                            PriceHistoryStore priceHistoryStore, SupportedStocksStore supportedStocksStore,
+                            PortfolioValueCache portfolioValueCache, LivePortfolioValues livePortfolioValues,
+                            PositionIndex positionIndex, PortfolioMetrics portfolioMetrics, ClientWriteGuard clientWriteGuard,
+                            PlatformTransactionManager transactionManager) {
         this.clientRepository = clientRepository;
         this.stockRepository = stockRepository;
+        this.priceHistoryStore = priceHistoryStore;
+        this.supportedStocksStore = supportedStocksStore;
+        this.portfolioValueCache = portfolioValueCache;
+        this.livePortfolioValues = livePortfolioValues;
+        this.positionIndex = positionIndex;
+        this.portfolioMetrics = portfolioMetrics;
+        this.clientWriteGuard = clientWriteGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -47,24 +82,71 @@ public class PortfolioService {
      * @return Long the new client's id
      */
     public long addNewClientPortfolio(List<Stock> newStockList) {
+        ServiceCall call = portfolioMetrics.start("addNewClientPortfolio");
+        try {
+            if (newStockList == null || newStockList.size() < 1) {
+                portfolioMetrics.validationFailed(PortfolioMetrics.EMPTY_PORTFOLIO);
+                throw new BadArgumentException("no stocks found at your request");
+            }
 
-        if (newStockList == null || newStockList.size() < 1) {
-            throw new BadArgumentException("no stocks found at your request");
-        }
+            //validating the incoming stocks
+            validatePortfolio(newStockList, false);
+            call.stage(Stage.VALIDATE);
+
+            //creating a new Client Object with generated id by saving it to the DB
+            Client newClient = clientRepository.save(new Client());
 
-        //validating the incoming stocks
-        PortfolioValidator.validatePortfolio(newStockList, false);
+            //Connecting the stocks to the new client id, saving them directly avoids an extra update per stock
+            //for the client's stocks collection
+            newStockList.forEach(stock -> stock.setClientId(newClient.getClientId()));
+            stockRepository.saveAll(newStockList);
+            portfolioValueCache.invalidateAfterCommit(newClient.getClientId());
+            indexAfterCommit(newClient.getClientId(), newStockList);
+            call.stage(Stage.DB_WRITE);
+
+            //returning the saved client's id
+            return newClient.getClientId();
+        } finally {
+            call.end();
+        }
+    }
 
-        //creating a new Client Object with generated id by saving it to the DB
-        Client newClient = clientRepository.save(new Client());
+    /**
+     * This service method is responsible to create a new client for every one of the incoming portfolios,
+     * saving all of them in a single transaction. Nothing is saved when one of the portfolios is not valid.
+     * @param newStockLists the new clients' portfolios
+     * @return the new clients' ids, in the order of the portfolios
+     */
+    public List<Long> addNewClientPortfolios(List<List<Stock>> newStockLists) {
+        ServiceCall call = portfolioMetrics.start("addNewClientPortfolios");
+        try {
+            for (List<Stock> newStockList : newStockLists) {
+                if (newStockList == null || newStockList.size() < 1) {
+                    portfolioMetrics.validationFailed(PortfolioMetrics.EMPTY_PORTFOLIO);
+                    throw new BadArgumentException("no stocks found at your request");
+                }
+                validatePortfolio(newStockList, false);
+            }
+            call.stage(Stage.VALIDATE);
 
-        //Connecting the stocks to the new client id
-        newStockList.forEach(stock -> stock.setClientId(newClient.getClientId()));
+            List<Long> newClientIds = new ArrayList<>(newStockLists.size());
+            List<Stock> newStocks = new ArrayList<>();
 
-        newClient.setStocksList(newStockList);
+            for (List<Stock> newStockList : newStockLists) {
+                Client newClient = clientRepository.save(new Client());
+                newStockList.forEach(stock -> stock.setClientId(newClient.getClientId()));
+                newStocks.addAll(newStockList);
+                indexAfterCommit(newClient.getClientId(), newStockList);
+                newClientIds.add(newClient.getClientId());
+            }
 
-        //returning the saved client's id
-        return newClient.getClientId();
+            //saving the stocks of all of the clients together, so they are written in JDBC batches
+            stockRepository.saveAll(newStocks);
+            call.stage(Stage.DB_WRITE);
+            return newClientIds;
+        } finally {
+            call.end();
+        }
     }
 
     /**
@@ -73,28 +155,52 @@ public class PortfolioService {
      * @param clientId  the id of the client which to replace his portfolio
      * @param newStockList the list of the client's new stocks
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void replaceClientPortfolio(Long clientId, List<Stock> newStockList) {
+        ServiceCall call = portfolioMetrics.start("replaceClientPortfolio");
+        try {
+            validateClientId(clientId);
+            clientWriteGuard.write(clientId, () -> transactionTemplate.execute(status -> {
+                replaceClientPortfolio(clientId, newStockList, call);
+                return null;
+            }));
+        } finally {
+            call.end();
+        }
+    }
 
-        //validating the client id
-        validateClient(clientId);
+    /**
+     * This aid method is responsible to replace the client's portfolio in the current transaction.
+     */
+    private void replaceClientPortfolio(Long clientId, List<Stock> newStockList, ServiceCall call) {
 
-        //getting the client Object from the DB
-        Client client = clientRepository.findByClientId(clientId);
+        //validating the client exists, incrementing his version
+        lockClient(clientId);
+        call.stage(Stage.DB_LOAD);
 
         //If new stock list is not empty
         if (newStockList != null && newStockList.size() > 0) {
 
             //validating the incoming stocks
-            PortfolioValidator.validatePortfolio(newStockList, false);
+            validatePortfolio(newStockList, false);
+            call.stage(Stage.VALIDATE);
 
-            //deleting the client's old stocks
+            //deleting the client's old stocks with a single bulk delete
             stockRepository.deleteByClientId(clientId);
 
-            //Connecting the new stocks to the client
-            newStockList.forEach(stock -> stock.setClientId(client.getClientId()));
+            //Connecting the new stocks to the client, as new stocks also when an attempt that lost is retried
+            newStockList.forEach(stock -> {
+                stock.setStockId(0);
+                stock.setClientId(clientId);
+            });
             stockRepository.saveAll(newStockList);
+            portfolioValueCache.invalidateAfterCommit(clientId);
+            livePortfolioValues.untrackAfterCommit(clientId);
+            indexAfterCommit(clientId, newStockList);
+            call.stage(Stage.DB_WRITE);
 
         } else {
+            portfolioMetrics.validationFailed(PortfolioMetrics.EMPTY_PORTFOLIO);
             throw new BadArgumentException("no stocks found at your request");
         }
     }
@@ -102,48 +208,98 @@ public class PortfolioService {
     /**
      * This service method is responsible to Update all\some of the client's stocks
      * Incoming stocks has to be owned by the user.
+     * The portfolio is loaded once and the changes are applied with one bulk update and one bulk delete,
+     * so the amount of queries does not depend on the size of the portfolio.
      * @param clientId  the id of the client which to update his portfolio
      * @param stocksToUpdate the list of stocks to update
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void updateClientPortfolio(Long clientId, List<Stock> stocksToUpdate) {
+        ServiceCall call = portfolioMetrics.start("updateClientPortfolio");
+        try {
+            validateClientId(clientId);
+            clientWriteGuard.write(clientId, () -> transactionTemplate.execute(status -> {
+                updateClientPortfolio(clientId, stocksToUpdate, call);
+                return null;
+            }));
+        } finally {
+            call.end();
+        }
+    }
 
-        //validating the client id
-        validateClient(clientId);
+    /**
+     * This aid method is responsible to update the client's portfolio in the current transaction.
+     */
+    private void updateClientPortfolio(Long clientId, List<Stock> stocksToUpdate, ServiceCall call) {
 
-        //getting the client Object from the DB
-        Client client = clientRepository.findByClientId(clientId);
+        //loading the client together with his portfolio, incrementing his version
+        Client client = clientRepository.findWithStocksForWriteByClientId(clientId)
+                .orElseThrow(() -> new EntityNotFoundException("client id '" + clientId + "' does not exist"));
+        call.stage(Stage.DB_LOAD);
 
         //If the stock list is not empty
         if (stocksToUpdate != null && stocksToUpdate.size() > 0) {
 
             //validating the incoming stocks
-            PortfolioValidator.validatePortfolio(stocksToUpdate, true);
+            validatePortfolio(stocksToUpdate, true);
+            call.stage(Stage.VALIDATE);
 
-            //validating the user indeed own all of the incoming stocks
-            for (Stock incomingStock : stocksToUpdate) {
-                if (!client.getStocksList().contains(incomingStock)) {
-                    throw new BadArgumentException("The stock '" + incomingStock.getstockSymbol() +
-                            "' doesn't exist in the client's portfolio");
-                }
-            }
+            //keying the client's portfolio by the stocks symbols
+            Map<String, Stock> stocksInDB = new HashMap<>();
+            client.getStocksList().forEach(stock -> stocksInDB.put(stock.getstockSymbol(), stock));
 
-            //for each stock to update
+            //calculating the difference between the incoming stocks and the client's portfolio
+            Map<Long, Integer> newAmountsByStockId = new HashMap<>();
+            Set<String> stockSymbolsToDelete = new HashSet<>();
             for (Stock stockToUpdate : stocksToUpdate) {
-                // get the matching stock from the DB
-                Stock stockInDB = stockRepository.findByStockSymbolAndClientId(
-                        stockToUpdate.getstockSymbol(), client.getClientId());
+                Stock stockInDB = stocksInDB.get(stockToUpdate.getstockSymbol());
+
+                //validating the user indeed own the incoming stock
+                if (stockInDB == null) {
+                    portfolioMetrics.validationFailed(PortfolioMetrics.NOT_OWNED);
+                    throw new BadArgumentException("The stock '" + stockToUpdate.getstockSymbol() +
+                            "' doesn't exist in the client's portfolio");
+                }
 
                 //if the amount changes to 0, delete it from the client portfolio
                 if (stockToUpdate.getStockAmount() == 0) {
-                    client.getStocksList().remove(stockInDB);
-                    stockRepository.delete(stockInDB);
+                    stockSymbolsToDelete.add(stockInDB.getstockSymbol());
+
+                    //otherwise, update its value if it changed
+                } else if (stockToUpdate.getStockAmount() != stockInDB.getStockAmount()) {
+                    newAmountsByStockId.put(stockInDB.getStockId(), stockToUpdate.getStockAmount());
+                }
+            }
+            call.stage(Stage.COMPUTE);
 
-                    //otherwise, update its value
-                } else {
-                    stockInDB.setStockAmount(stockToUpdate.getStockAmount());
+            //applying the difference
+            if (!newAmountsByStockId.isEmpty()) {
+                stockRepository.updateStockAmounts(newAmountsByStockId);
+            }
+            if (!stockSymbolsToDelete.isEmpty()) {
+                stockRepository.deleteByClientIdAndStockSymbols(clientId, stockSymbolsToDelete);
+            }
+            portfolioValueCache.invalidateAfterCommit(clientId);
+            livePortfolioValues.untrackAfterCommit(clientId);
+
+            //the portfolio after the update, in the order of the stocks ids as it is loaded from the database
+            if (positionIndex.isEnabled()) {
+                List<Stock> updatedStocks = new ArrayList<>();
+                for (Stock stock : client.getStocksList()) {
+                    if (!stockSymbolsToDelete.contains(stock.getstockSymbol())) {
+                        Stock updatedStock = new Stock(stock.getstockSymbol());
+                        updatedStock.setStockId(stock.getStockId());
+                        updatedStock.setStockAmount(newAmountsByStockId.getOrDefault(stock.getStockId(),
+                                stock.getStockAmount()));
+                        updatedStocks.add(updatedStock);
+                    }
                 }
+                updatedStocks.sort(Comparator.comparingLong(Stock::getStockId));
+                indexAfterCommit(clientId, updatedStocks);
             }
+            call.stage(Stage.DB_WRITE);
         } else {
+            portfolioMetrics.validationFailed(PortfolioMetrics.EMPTY_PORTFOLIO);
             throw new BadArgumentException("no stocks found at your request");
         }
     }
@@ -152,36 +308,113 @@ public class PortfolioService {
     /**
      * This service method is responsible to return a client's portfolio value
      * according to the received client's id.
+     * The value is served from the {@link PortfolioValueCache} when the client's positions are cached,
+     * without a transaction or a query, and the positions are loaded from the primary otherwise.
      * @param clientId the client of which to return his portfolio value
      * @return Double the client's portfolio value
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Double getPortfolioValue(Long clientId) {
+        ServiceCall call = portfolioMetrics.start("getPortfolioValue");
+        try {
 
-        //validating the client id
-        validateClient(clientId);
+            //validating the client id
+            validateClientId(clientId);
+            call.stage(Stage.VALIDATE);
 
-        //get all of the client's stocks
-        List<Stock> clientStocks = stockRepository.findByClientId(clientId);
+            //taking a single price snapshot for the whole calculation
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
 
-        //if his stocks list is not empty
-        if (clientStocks != null && clientStocks.size() > 0) {
-            Double portfolioValue = 0.0;
+            double portfolioValue = portfolioValueCache.getValue(clientId, priceHistory, () -> {
 
-            //getting the client's stocks-values map passing 1 day back as an argument to get the last value
-            Map<String, List<Double>> clientStocksHistoryMap = getStocksHistoryMap(clientStocks,1);
+                //get all of the client's stocks
+                List<StockPosition> clientStocks = loadPositionsFromPrimary(clientId);
+                call.stage(Stage.DB_LOAD);
 
-            //calculate the client's portfolio value
-            for (Stock clientStock : clientStocks) {
-                Double latestStockValue = clientStocksHistoryMap.get(clientStock.getstockSymbol()).get(0);
-                Double stockValue = clientStock.getStockAmount() * latestStockValue;
-                portfolioValue += stockValue;
-            }
+                //if his stocks list is empty
+                if (clientStocks == null || clientStocks.isEmpty()) {
+                    throw new EntityNotFoundException("No stocks founded for user '" + clientId + "'");
+                }
+                return clientStocks;
+            });
+            call.stage(Stage.COMPUTE);
+            return portfolioValue;
+        } finally {
+            call.end();
+        }
+    }
 
-            //returning the client's portfolio value
+    /**
+     * This service method is responsible to return a client's live portfolio value, priced by the latest
+     * ticks of his stocks, see {@link LivePortfolioValues}.
+     * A tracked client is answered from memory, without a transaction or a query, and the positions of a client
+     * who is not are loaded from the primary.
+     * @param clientId the client of which to return his live portfolio value
+     * @return Double the client's live portfolio value
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Double getLivePortfolioValue(Long clientId) {
+        ServiceCall call = portfolioMetrics.start("getLivePortfolioValue");
+        try {
+            validateClientId(clientId);
+            call.stage(Stage.VALIDATE);
+
+            double portfolioValue = livePortfolioValues.getValue(clientId, () -> {
+                List<StockPosition> clientStocks = loadPositionsFromPrimary(clientId);
+                call.stage(Stage.DB_LOAD);
+                if (clientStocks.isEmpty()) {
+                    throw new EntityNotFoundException("No stocks founded for user '" + clientId + "'");
+                }
+                return clientStocks;
+            });
+            call.stage(Stage.COMPUTE);
             return portfolioValue;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * This service method is responsible to return a client's portfolio value at a past date,
+     * valuing every stock by its latest close on or before that date.
+     * @param clientId the client of which to return his portfolio value
+     * @param date the date to value the portfolio at
+     * @return the client's portfolio value at the date
+     */
+    @Transactional(readOnly = true)
+    public double getPortfolioValueAt(Long clientId, LocalDate date) {
+        ServiceCall call = portfolioMetrics.start("getPortfolioValueAt");
+        try {
+
+            //get all of the client's stocks
+            List<StockPosition> clientStocks = loadPositions(clientId);
+            call.stage(Stage.DB_LOAD);
+
+            //if his stocks list is empty
+            if (clientStocks == null || clientStocks.isEmpty()) {
+                throw new EntityNotFoundException("No stocks founded for user '" + clientId + "'");
+            }
 
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
+
+            int epochDay = (int) date.toEpochDay();
+            double portfolioValue = 0.0;
+            for (StockPosition clientStock : clientStocks) {
+                int symbolIndex = priceHistory.indexOf(clientStock.getStockSymbol());
+                int daysBack = symbolIndex < 0 ? -1 : priceHistory.daysBackOnOrBefore(symbolIndex, epochDay);
+                if (daysBack < 0) {
+                    throw new EntityNotFoundException("No price found for stock '" + clientStock.getStockSymbol() +
+                            "' on or before '" + date + "'");
+                }
+                portfolioValue += clientStock.getStockAmount() * priceHistory.close(symbolIndex, daysBack);
+            }
+            call.stage(Stage.COMPUTE);
+            return portfolioValue;
+        } finally {
+            call.end();
         }
-        throw new EntityNotFoundException("No stocks founded for user '" +clientId+ "'");
     }
 
     /**
@@ -191,46 +424,53 @@ public class PortfolioService {
      * @param pastDays how many days to go back in the history of the stocks values
      * @return The performing stocks symbol
      */
+    @Transactional(readOnly = true)
     public String mostPerformingStock(Long clientId, int pastDays) {
+        ServiceCall call = portfolioMetrics.start("mostPerformingStock");
+        try {
 
-        //If the requested stock history is not supported by the data in the file
-        if (!(pastDays <= supportedStockHistoryInDays)) {
-            throw new BadArgumentException("number of days '" + pastDays + "' is currently not supported");
-        }
-
-        //validating the client id
-        validateClient(clientId);
-
-        //get all of the client's stocks
-        List<Stock> clientStocks = stockRepository.findByClientId(clientId);
+            //taking a single price snapshot for the whole calculation
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
 
-        //if his stocks list is not empty
-        if (clientStocks != null && clientStocks.size() > 0) {
-            String performingStock = null;
-            Double highestStockDiff = 0.0;
-
-            //getting the client's stocks-values map passing pastDays argument which hold the number of days to go back in history
-            Map<String, List<Double>> clientStocksHistoryMap = getStocksHistoryMap(clientStocks,pastDays);
-
-           //For each of the client's stock,calculating the difference in value
-            for (Map.Entry<String, List<Double>> stockEntry : clientStocksHistoryMap.entrySet())
-            {
-                Double currentStockDiff = stockEntry.getValue().get(0) - stockEntry.getValue().get(pastDays - 1);
-                if (highestStockDiff < currentStockDiff) {
-                    highestStockDiff = currentStockDiff;
-                    performingStock = stockEntry.getKey();
-                }
+            //If the requested stock history is not supported by the data in the file
+            if (pastDays < 1 || pastDays > priceHistory.longestHistoryLength()) {
+                throw new BadArgumentException("number of days '" + pastDays + "' is currently not supported");
             }
+            call.stage(Stage.VALIDATE);
 
-            //If all stocks fell in value
-            if (highestStockDiff == 0.0) {
-                return "No stock raised in value in last '" + pastDays + "' days";
-            } else {
-                return performingStock;
-            }
+            String performingStock = mostPerformingStock(clientId, priceHistory, HistoryWindow.trailing(pastDays), call);
+            return performingStock != null ? performingStock :
+                    "No stock raised in value in last '" + pastDays + "' days";
+        } finally {
+            call.end();
+        }
+    }
 
+    /**
+     * This service method is responsible to calculate the most performing client's stock between two dates.
+     * Most performing stock is the one that raised the most in value from its first close on or after the from date
+     * to its last close on or before the to date.
+     * @param clientId the client of which to calculate the most performing stock.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return The performing stocks symbol
+     */
+    @Transactional(readOnly = true)
+    public String mostPerformingStock(Long clientId, LocalDate from, LocalDate to) {
+        ServiceCall call = portfolioMetrics.start("mostPerformingStockBetweenDates");
+        try {
+            validateDateRange(from, to);
+            call.stage(Stage.VALIDATE);
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
+
+            String performingStock = mostPerformingStock(clientId, priceHistory, HistoryWindow.between(from, to), call);
+            return performingStock != null ? performingStock :
+                    "No stock raised in value between '" + from + "' and '" + to + "'";
+        } finally {
+            call.end();
         }
-        throw new EntityNotFoundException("No stocks found for client '" + clientId + "'");
     }
 
     /**
@@ -240,34 +480,86 @@ public class PortfolioService {
      * @param pastDays how many days to go back in the history of the stocks values.
      * @return The most stable stock symbol
      */
+    @Transactional(readOnly = true)
     public String mostStableStock(Long clientId, int pastDays) {
-        //If the requested stock history is not supported by the data in the file
-        if (!(pastDays <= supportedStockHistoryInDays)) {
-            throw new BadArgumentException("number of days '" + pastDays + "' is currently not supported");
+        ServiceCall call = portfolioMetrics.start("mostStableStock");
+        try {
+
+            //taking a single price snapshot for the whole calculation
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
+
+            //If the requested stock history is not supported by the data in the file
+            if (!(pastDays <= priceHistory.longestHistoryLength())) {
+                throw new BadArgumentException("number of days '" + pastDays + "' is currently not supported");
+
+            }//If the requested stock history is less than 1, most stable stock function cannot perform
+            else if (pastDays < 2) {
+                throw new BadArgumentException("the minimum past days for this function: '2' ");
+            }
+            call.stage(Stage.VALIDATE);
 
-        }//If the requested stock history is less than 1, most stable stock function cannot perform
-        else if (pastDays < 2) {
-            throw new BadArgumentException("the minimum past days for this function: '2' ");
+            return mostStableStock(clientId, priceHistory, HistoryWindow.trailing(pastDays), call);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * This service method is responsible to calculate the most stable client's stock between two dates.
+     * Most stable stock is the one with least value fluctuation among its closes in the range.
+     * @param clientId the client of which to calculate the most stable stock.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return The most stable stock symbol
+     */
+    @Transactional(readOnly = true)
+    public String mostStableStock(Long clientId, LocalDate from, LocalDate to) {
+        ServiceCall call = portfolioMetrics.start("mostStableStockBetweenDates");
+        try {
+            validateDateRange(from, to);
+            call.stage(Stage.VALIDATE);
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
+            return mostStableStock(clientId, priceHistory, HistoryWindow.between(from, to), call);
+        } finally {
+            call.end();
         }
+    }
 
-        //validating the client id
-        validateClient(clientId);
+    /**
+     * @return the symbol of the client's stock that raised the most in value in the window,
+     * or null if none of them raised
+     */
+    private String mostPerformingStock(Long clientId, PriceHistory priceHistory, HistoryWindow window, ServiceCall call) {
 
         //get all of the client's stocks
-        List<Stock> clientStocks = stockRepository.findByClientId(clientId);
+        List<StockPosition> clientStocks = loadPositions(clientId);
+        call.stage(Stage.DB_LOAD);
 
         //if his stocks list is not empty
         if (clientStocks != null && clientStocks.size() > 0) {
+            String performingStock = PortfolioAnalytics.mostPerformingStock(clientStocks, priceHistory, window);
+            call.stage(Stage.COMPUTE);
+            return performingStock;
+        }
+        throw new EntityNotFoundException("No stocks found for client '" + clientId + "'");
+    }
 
-            //getting the stocks-values map
-            Map<String, List<Double>> clientStocksHistoryMap = getStocksHistoryMap(clientStocks,pastDays);
+    private String mostStableStock(Long clientId, PriceHistory priceHistory, HistoryWindow window, ServiceCall call) {
+
+        //get all of the client's stocks
+        List<StockPosition> clientStocks = loadPositions(clientId);
+        call.stage(Stage.DB_LOAD);
+
+        //if his stocks list is not empty
+        if (clientStocks != null && clientStocks.size() > 0) {
+            String stableStock = PortfolioAnalytics.mostStableStock(clientStocks, priceHistory, window);
+            call.stage(Stage.COMPUTE);
 
-            //calculating using streams
-            return clientStocksHistoryMap.entrySet().stream()
-                    .collect(Collectors.toMap(e->e.getKey(),e->
-                            e.getValue().stream().max(Double::compare).get() - e.getValue().stream().min(Double::compare).get()))
-                    .entrySet().stream()
-                    .min((o1,o2)->o1.getValue().compareTo(o2.getValue())).get().getKey();
+            if (stableStock != null) {
+                return stableStock;
+            }
         }
         throw new EntityNotFoundException("No stocks found for client '" + clientId + "'");
     }
@@ -276,114 +568,151 @@ public class PortfolioService {
      * This service method is responsible to return a recommendation to the client
      * of the best (not owned by the client) stock to buy.
      * Best stock is the one that whose current value is the highest among all stocks.
+     * It is timed as a call of {@link #bestStocks(Long, int)}.
      * @param clientId the client to send the recommendation to according to his portfolio.
      * @return The best stock symbol
      */
+    @Transactional(readOnly = true)
     public String bestStock(Long clientId) {
+        return bestStocks(clientId, 1).get(0);
+    }
 
-        //validating the client id
-        validateClient(clientId);
+    /**
+     * This service method is responsible to return a recommendation to the client
+     * of the best (not owned by the client) stocks to buy, from the best to the least good one.
+     * The symbols are taken in the order of the snapshot's ranking by latest close, skipping the owned ones,
+     * so only the top of the ranking is visited.
+     * @param clientId the client to send the recommendation to according to his portfolio.
+     * @param count how many stocks to recommend
+     * @return up to count best stock symbols
+     */
+    @Transactional(readOnly = true)
+    public List<String> bestStocks(Long clientId, int count) {
+        ServiceCall call = portfolioMetrics.start("bestStocks");
+        try {
 
-        //get all of the client's stocks
-        List<Stock> clientStocks = stockRepository.findByClientId(clientId);
+            if (count < 1) {
+                throw new BadArgumentException("number of stocks '" + count + "' must be at least 1");
+            }
+            call.stage(Stage.VALIDATE);
+
+            //get all of the client's stocks
+            List<StockPosition> clientStocks = loadPositions(clientId);
+            call.stage(Stage.DB_LOAD);
+            PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+            call.stage(Stage.PRICE_LOOKUP);
+
+            //marking the client's stocks in a bitset of the snapshot's symbol indexes
+            long[] ownedSymbols = new long[(priceHistory.symbolCount() + 63) >>> 6];
+            for (StockPosition clientStock : clientStocks) {
+                int symbolIndex = priceHistory.indexOf(clientStock.getStockSymbol());
+                if (symbolIndex >= 0) {
+                    ownedSymbols[symbolIndex >>> 6] |= 1L << symbolIndex;
+                }
+            }
 
-        //getting the stocks-values map passing 1 day back as an argument to get the last value
-        Map<String, List<Double>> stockHistoryMap = getStocksHistoryMap(null, 1);
+            //walking down the ranking until enough not owned stocks were found
+            List<String> bestStocks = new ArrayList<>(Math.min(count, priceHistory.symbolCount()));
+            for (int rank = 0; rank < priceHistory.symbolCount() && bestStocks.size() < count; rank++) {
+                int symbolIndex = priceHistory.symbolIndexByLatestCloseRank(rank);
+                if ((ownedSymbols[symbolIndex >>> 6] & (1L << symbolIndex)) == 0) {
+                    bestStocks.add(priceHistory.symbol(symbolIndex));
+                }
+            }
+            call.stage(Stage.COMPUTE);
 
-        //calculating best-stock using streams
-        return stockHistoryMap.entrySet().stream()
-                .filter(e -> !clientStocks.contains(new Stock(e.getKey())))
-                .max((e1, e2) -> e1.getValue().stream().max(Double::compare).get().
-                        compareTo(e2.getValue().stream().max(Double::compare).get()))
-                .get().getKey();
+            if (bestStocks.isEmpty()) {
+                throw new EntityNotFoundException("No stock to recommend for client '" + clientId + "'");
+            }
+            return bestStocks;
+        } finally {
+            call.end();
+        }
     }
 
+    /**
+     * This aid method is responsible to validate the incoming stocks against the supported stocks,
+     * counting the violations of a rejected portfolio by their reason.
+     * @param stockList the incoming stocks
+     * @param portfolioExist true if the stocks update an existing portfolio
+     */
+    private void validatePortfolio(List<Stock> stockList, boolean portfolioExist){
+        try {
+            PortfolioValidator.validatePortfolio(stockList, portfolioExist, supportedStocksStore.getSupportedStocks());
+        } catch (PortfolioValidationException e) {
+            portfolioMetrics.validationFailed(e);
+            throw e;
+        }
+    }
 
     /**
-     * This aid method is responsible to validate if a client exist
+     * This aid method is responsible to validate if a client exist, loading him for a write of his portfolio
      * @param clientId the client's id
      */
-    private void validateClient(Long clientId){
-        if (clientId == null || clientId < 0) {
-            throw new BadArgumentException("client id '" + clientId + "' is not valid");
-        }else if(!clientRepository.existsByClientId(clientId)){
+    private void lockClient(Long clientId){
+        if(!clientRepository.findForWriteByClientId(clientId).isPresent()){
             throw new EntityNotFoundException("client id '" + clientId + "' does not exist");
         }
     }
 
     /**
-     * This aid method is responsible to build a map where the key is a stock symbol
-     * and the value is a List of all the stock's values in the past days.
-     * the size of the list represents the amount of days back and passes as an argument.
-     * @param pastDays how many days to go back in the history of the stock's values
-     * @param clientStocks dictates which stocks to insert to the map, when null it means all stocks.
-     * @return Map<String, List<Double>>, The client's stocks map
+     * This aid method is responsible to load the positions of a client in a single query,
+     * checking if the client exist only when he has no positions, or to read them from the position index
+     * @param clientId the client's id
+     * @return the client's positions, not managed by hibernate
      */
-    private Map<String, List<Double>> getStocksHistoryMap(List<Stock> clientStocks,int pastDays) {
-        File stocksFile = new File(stockCSVFilePath);
-        Map<String, List<Double>> stocksMap = new HashMap<>();
-        BufferedReader br = null;
-        String line;
-
-        try {
-            br = new BufferedReader(new FileReader(stocksFile));
-            while ((line = br.readLine()) != null) {
-
-                // use comma as separator
-                String[] stockLine = line.split(",");
-
-                //Extracting the stock symbol in the stock-file
-                String stockSymbolInFile = stockLine[0];
-
-                //when clientStocks == null all of the stocks will be inserted to the map.
-                //Otherwise, only the client's stocks will be inserted
-                if (clientStocks == null || clientStocks.contains(new Stock(stockSymbolInFile))) {
-
-
-                    //creating a list that will contains all previous values of the stock
-                    List<Double> valuesList = new ArrayList<>();
-
-
-                    //Extracting the first value of that giving stock
-                    valuesList.add(Double.parseDouble(stockLine[1]));
-
-                    //Running on an inner loop on all of the founded stock appearances and saving their values
-                    //loop is limited to the pastDays variable
-                    int i = 1;
-                    while ((line = br.readLine()) != null) {
-                        stockLine = line.split(",");
-
-                        //if we are still on the same stock
-                        if (stockSymbolInFile.equals(stockLine[0])) {
-                            //if we are iterating in the limits of past days,enter the value to the list of values
-                            if (i < pastDays) {
-                                valuesList.add(Double.parseDouble(stockLine[1]));
-                                i++;
-                            }
-                            //marking to current stock line
-                            br.mark(numberOfCharactersInAFileRowLimit);
-                        } else {
-                            //When reaching a new stock, resetting the reader one line back for next iteration
-                            br.reset();
-                            break;
-                        }
-                    }
-                    //Inserting the stock and its list of value-history to the map
-                    stocksMap.put(stockSymbolInFile, valuesList);
-                }
-            }
-        } catch (IOException e) {
-            throw new InternalServerErrorException("Error while processing your request, please try again later");
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    throw new InternalServerErrorException("Error while processing your request, please try again later");
-                }
+    private List<StockPosition> loadPositions(Long clientId){
+        validateClientId(clientId);
+        if (positionIndex.isReady()) {
+            List<StockPosition> positions = positionIndex.positions(clientId);
+            if (positions == null) {
+                throw new EntityNotFoundException("client id '" + clientId + "' does not exist");
             }
+            return positions;
+        }
+        List<StockPosition> positions = stockRepository.findPositionsByClientId(clientId);
+        if (positions.isEmpty() && !clientRepository.existsByClientId(clientId)) {
+            throw new EntityNotFoundException("client id '" + clientId + "' does not exist");
+        }
+        return positions;
+    }
+
+    /**
+     * This aid method is responsible to load the positions of a client in a transaction that is not read only,
+     * so it is never routed to a read replica. The positions are kept by the caches until the client's next write,
+     * so positions read from a lagging replica would be served long after the replica caught up.
+     * @param clientId the client's id
+     * @return the client's positions
+     */
+    private List<StockPosition> loadPositionsFromPrimary(Long clientId){
+        return transactionTemplate.execute(status -> loadPositions(clientId));
+    }
+
+    /**
+     * This aid method is responsible to set the client's positions in the position index
+     * once the current transaction commits
+     * @param clientId the client's id
+     * @param stocks all of the client's stocks after the write
+     */
+    private void indexAfterCommit(long clientId, List<Stock> stocks){
+        if (positionIndex.isEnabled()) {
+            List<StockPosition> positions = new ArrayList<>(stocks.size());
+            stocks.forEach(stock -> positions.add(new StockPosition(clientId, stock.getstockSymbol(),
+                    stock.getStockAmount())));
+            positionIndex.putAfterCommit(clientId, positions);
+        }
+    }
+
+    private void validateClientId(Long clientId){
+        if (clientId == null || clientId < 0) {
+            throw new BadArgumentException("client id '" + clientId + "' is not valid");
+        }
+    }
+
+    private void validateDateRange(LocalDate from, LocalDate to){
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new BadArgumentException("the date range from '" + from + "' to '" + to + "' is not valid");
         }
-        return stocksMap;
     }
 
 }
@@ -0,0 +1,39 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of valuing a single client's portfolio, either its value or the reason it could not be valued.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PortfolioValuationResult {
+    private final Long clientId;
+    private final Double value;
+    private final String error;
+
+    private PortfolioValuationResult(Long clientId, Double value, String error) {
+        this.clientId = clientId;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static PortfolioValuationResult valued(long clientId, double value) {
+        return new PortfolioValuationResult(clientId, value, null);
+    }
+
+    public static PortfolioValuationResult failed(Long clientId, String error) {
+        return new PortfolioValuationResult(clientId, null, error);
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
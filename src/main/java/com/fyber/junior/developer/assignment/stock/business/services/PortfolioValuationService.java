@@ -0,0 +1,158 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.model.repository.ClientRepository;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics.ServiceCall;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics.Stage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * This service responsible to value the portfolios of many clients at once.
+ * The clients are valued a page at a time: the positions of a page of clients are loaded with a single query
+ * into primitive columns, see {@link ClientPositionsPage}, valued against one price snapshot taken for the whole
+ * request, and handed to the consumer before the next page is loaded, so memory stays flat regardless
+ * of the amount of clients. Every page runs its queries on its own, without a transaction spanning the request.
+ * When the {@link PositionIndex} is loaded the pages are copied from it instead.
+ */
+@Service
+public class PortfolioValuationService {
+    private ClientRepository clientRepository;
+    private PriceHistoryStore priceHistoryStore;
+    private PortfolioMetrics portfolioMetrics;
+    private PositionIndex positionIndex;
+    private int pageSize;
+
+    //Dependency Injection
+    @Autowired
+    public PortfolioValuationService(ClientRepository clientRepository, PriceHistoryStore priceHistoryStore,
+                                     PortfolioMetrics portfolioMetrics, PositionIndex positionIndex,
+                                     @Value("${portfolio.valuation.page-size:1000}") int pageSize) {
+        this.clientRepository = clientRepository;
+        this.priceHistoryStore = priceHistoryStore;
+        this.portfolioMetrics = portfolioMetrics;
+        this.positionIndex = positionIndex;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * This service method is responsible to value the portfolios of the given clients.
+     * A client that cannot be valued does not stop the valuation, it is reported with the reason.
+     * @param clientIds the clients to value, a client may appear more than once
+     * @param resultConsumer receives a result for every incoming client id, in the incoming order
+     */
+    public void valuePortfolios(Iterator<Long> clientIds, Consumer<PortfolioValuationResult> resultConsumer) {
+        PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+        double[] latestCloses = latestCloses(priceHistory);
+        List<Long> pageClientIds = new ArrayList<>(pageSize);
+
+        while (clientIds.hasNext()) {
+            pageClientIds.add(clientIds.next());
+            if (pageClientIds.size() == pageSize || !clientIds.hasNext()) {
+                valuePage(pageClientIds, priceHistory, latestCloses, resultConsumer);
+                pageClientIds.clear();
+            }
+        }
+    }
+
+    /**
+     * This service method is responsible to value the portfolios of all of the clients,
+     * paging through them by their id.
+     * @param resultConsumer receives a result for every client, in the order of the clients' ids
+     */
+    public void valueAllPortfolios(Consumer<PortfolioValuationResult> resultConsumer) {
+        PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+        double[] latestCloses = latestCloses(priceHistory);
+
+        //every page starts after the last id of the previous one, so a page costs the same however deep it is
+        List<Long> pageClientIds = clientRepository.findClientIdsAfter(-1, PageRequest.of(0, pageSize));
+        while (!pageClientIds.isEmpty()) {
+            valuePage(pageClientIds, priceHistory, latestCloses, resultConsumer);
+            long lastClientId = pageClientIds.get(pageClientIds.size() - 1);
+            pageClientIds = pageClientIds.size() < pageSize ? new ArrayList<>() :
+                    clientRepository.findClientIdsAfter(lastClientId, PageRequest.of(0, pageSize));
+        }
+    }
+
+    /**
+     * This aid method is responsible to load, value and report a single page of clients.
+     * @param pageClientIds the page's client ids, in the order they are reported
+     */
+    private void valuePage(List<Long> pageClientIds, PriceHistory priceHistory, double[] latestCloses,
+                           Consumer<PortfolioValuationResult> resultConsumer) {
+        List<PortfolioValuationResult> results = new ArrayList<>(pageClientIds.size());
+        ServiceCall call = portfolioMetrics.start("valuePortfolios");
+        try {
+            Set<Long> validClientIds = new HashSet<>();
+            for (Long clientId : pageClientIds) {
+                if (clientId != null && clientId >= 0) {
+                    validClientIds.add(clientId);
+                }
+            }
+            call.stage(Stage.VALIDATE);
+
+            //the positions are copied from the position index when it is loaded, without a query
+            ClientPositionsPage page = positionIndex.isReady() ? positionIndex.page(validClientIds, priceHistory) :
+                    ClientPositionsPage.of(validClientIds.isEmpty() ? new ArrayList<>() :
+                            clientRepository.findPositionsByClientIds(validClientIds), priceHistory);
+            call.stage(Stage.DB_LOAD);
+
+            double[] values = page.value(latestCloses);
+            for (Long clientId : pageClientIds) {
+                results.add(result(clientId, page, values));
+            }
+            call.stage(Stage.COMPUTE);
+        } finally {
+            call.end();
+        }
+
+        //reported after the page's call ended, so writing the results is not timed as the valuation
+        results.forEach(resultConsumer);
+    }
+
+    /**
+     * This aid method is responsible to build the result of a single client, with the same errors
+     * as valuing the client's portfolio on its own.
+     */
+    private static PortfolioValuationResult result(Long clientId, ClientPositionsPage page, double[] values) {
+        if (clientId == null || clientId < 0) {
+            return PortfolioValuationResult.failed(clientId, "client id '" + clientId + "' is not valid");
+        }
+
+        int client = page.indexOf(clientId);
+        if (client < 0) {
+            return PortfolioValuationResult.failed(clientId, "client id '" + clientId + "' does not exist");
+        }
+        if (page.positionCount(client) == 0) {
+            return PortfolioValuationResult.failed(clientId, "No stocks founded for user '" + clientId + "'");
+        }
+        if (Double.isNaN(values[client])) {
+            return PortfolioValuationResult.failed(clientId,
+                    "No price history found for stock '" + page.unpricedSymbol(client) + "'");
+        }
+        return PortfolioValuationResult.valued(clientId, values[client]);
+    }
+
+    /**
+     * This aid method is responsible to copy the latest close of every symbol of the snapshot into an array,
+     * once per request, so the valuation loop reads the prices by the symbol's index.
+     */
+    private static double[] latestCloses(PriceHistory priceHistory) {
+        double[] latestCloses = new double[priceHistory.symbolCount()];
+        for (int symbolIndex = 0; symbolIndex < latestCloses.length; symbolIndex++) {
+            latestCloses[symbolIndex] = priceHistory.latestClose(symbolIndex);
+        }
+        return latestCloses;
+    }
+}
@@ -0,0 +1,120 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.InternalServerErrorException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of the clients' positions and portfolio values, keyed by the client's id.
+ * An entry remembers the price snapshot its value was calculated with, so after a price change the value
+ * is recalculated from the cached positions without going to the database.
+ * Writes invalidate the client's entry after their transaction commits. A load that read the old positions
+ * while the write was running finishes before the invalidation, so it never leaves a stale entry behind.
+ * Hit, miss and eviction counters are published as the "portfolio.values" cache metrics.
+ */
+@Component
+public class PortfolioValueCache {
+    private Cache<Long, CachedPortfolio> cache;
+
+    @Autowired
+    public PortfolioValueCache(@Value("${portfolio.value-cache.maximum-size:100000}") long maximumSize,
+                               @Value("${portfolio.value-cache.ttl-seconds:600}") long timeToLiveSeconds,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "portfolio.values");
+    }
+
+    /**
+     * @param clientId the client of which to return his portfolio value
+     * @param priceHistory the price snapshot to value the portfolio with
+     * @param positionsLoader loads the client's stocks when they are not cached
+     * @return the client's portfolio value
+     */
+    public double getValue(long clientId, PriceHistory priceHistory, Supplier<List<StockPosition>> positionsLoader) {
+
+        CachedPortfolio cachedPortfolio = cache.get(clientId, id -> CachedPortfolio.of(positionsLoader.get(), priceHistory));
+
+        //revaluing an entry that was calculated with an older price snapshot, unless it was invalidated meanwhile
+        if (cachedPortfolio.priceHistory != priceHistory) {
+            CachedPortfolio revalued = cache.asMap().computeIfPresent(clientId, (id, cached) ->
+                    cached.priceHistory == priceHistory ? cached : cached.revalue(priceHistory));
+            return revalued != null ? revalued.value : cachedPortfolio.revalue(priceHistory).value;
+        }
+        return cachedPortfolio.value;
+    }
+
+    /**
+     * Invalidates the client's entry once the current transaction commits, or immediately
+     * when there is no transaction.
+     * @param clientId the client whose portfolio changed
+     */
+    public void invalidateAfterCommit(long clientId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(clientId);
+                }
+            });
+        } else {
+            cache.invalidate(clientId);
+        }
+    }
+
+    /**
+     * The client's positions, kept as primitive arrays, and their value in a given price snapshot.
+     */
+    private static final class CachedPortfolio {
+        private final String[] symbols;
+        private final int[] amounts;
+        private final PriceHistory priceHistory;
+        private final double value;
+
+        private CachedPortfolio(String[] symbols, int[] amounts, PriceHistory priceHistory) {
+            this.symbols = symbols;
+            this.amounts = amounts;
+            this.priceHistory = priceHistory;
+
+            double portfolioValue = 0.0;
+            for (int i = 0; i < symbols.length; i++) {
+                int symbolIndex = priceHistory.indexOf(symbols[i]);
+                if (symbolIndex < 0) {
+                    throw new InternalServerErrorException("No price history found for stock '" + symbols[i] + "'");
+                }
+                portfolioValue += amounts[i] * priceHistory.latestClose(symbolIndex);
+            }
+            this.value = portfolioValue;
+        }
+
+        static CachedPortfolio of(List<StockPosition> stocks, PriceHistory priceHistory) {
+            String[] symbols = new String[stocks.size()];
+            int[] amounts = new int[stocks.size()];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = stocks.get(i).getStockSymbol();
+                amounts[i] = stocks.get(i).getStockAmount();
+            }
+            return new CachedPortfolio(symbols, amounts, priceHistory);
+        }
+
+        CachedPortfolio revalue(PriceHistory newPriceHistory) {
+            return new CachedPortfolio(symbols, amounts, newPriceHistory);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+/**
+ * Receives the changes of the live values of the watched clients from the {@link LivePortfolioValues}.
+ */
+public interface PortfolioValueListener {
+
+    /**
+     * Called every time a tick changed the client's live value, and when the client's positions or the price
+     * history changed, in which case the value is loaded again by the next request. It is called on the
+     * ingesting threads, so the listener has to return quickly.
+     * @param clientId the watched client
+     */
+    void valueChanged(long clientId);
+}
@@ -0,0 +1,422 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import com.fyber.junior.developer.assignment.stock.model.repository.ClientRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in memory index of the positions of every client, enabled by "portfolio.position-index.enabled".
+ * A position takes 8 bytes off the heap, the id of its symbol in a dictionary of the symbols and its amount,
+ * as two ints in a direct buffer. The positions of a client are contiguous, and an open addressing table of
+ * primitive arrays maps the client's id to the offset and the count of his positions, so the heap holds a few
+ * arrays whatever the amount of positions, and the garbage collector has nothing to trace.
+ * A client whose portfolio grew is written at the end of the buffer, leaving his former positions unused,
+ * and the buffer is compacted into a new one, twice as large as the used positions, when it is full.
+ * The index is loaded when the application context is refreshed, before the server accepts requests, and every
+ * write of {@link PortfolioService} is applied once its transaction commits. Writes of other app instances are
+ * not seen, so the index fits a single instance owning the book.
+ * "portfolio.position-index.positions" is the amount of indexed positions and "portfolio.position-index.bytes"
+ * the memory the index takes, on and off the heap.
+ */
+@Component
+public class PositionIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PositionIndex.class);
+
+    //a position is a symbol id and an amount
+    static final int POSITION_BYTES = 8;
+    private static final int MAX_POSITIONS = Integer.MAX_VALUE / POSITION_BYTES;
+    private static final int INITIAL_POSITIONS = 1024;
+    private static final int INITIAL_CLIENTS = 1024;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final long NO_CLIENT = -1;
+
+    private final ClientRepository clientRepository;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //the symbols dictionary
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private String[] symbols = new String[64];
+
+    //the clients table, a client's entry is the offset of his positions in the high int and their count in the low one
+    private long[] clientIds;
+    private long[] entries;
+    private int clientCount;
+
+    //the positions, the first usedPositions of them were written and livePositions of those are in use
+    private ByteBuffer positions;
+    private int usedPositions;
+    private int livePositions;
+    private volatile boolean loaded;
+
+    @Autowired
+    public PositionIndex(ClientRepository clientRepository, MeterRegistry meterRegistry,
+                         @Value("${portfolio.position-index.enabled:false}") boolean enabled) {
+        this.clientRepository = clientRepository;
+        this.enabled = enabled;
+        if (enabled) {
+            this.clientIds = newClientIds(INITIAL_CLIENTS);
+            this.entries = new long[INITIAL_CLIENTS];
+            this.positions = ByteBuffer.allocateDirect(INITIAL_POSITIONS * POSITION_BYTES).order(ByteOrder.nativeOrder());
+            Gauge.builder("portfolio.position-index.positions", this, PositionIndex::positionCount)
+                    .description("Positions held by the position index")
+                    .register(meterRegistry);
+            Gauge.builder("portfolio.position-index.bytes", this, PositionIndex::offHeapBytes)
+                    .description("Memory taken by the position index")
+                    .tag("area", "offheap")
+                    .register(meterRegistry);
+            Gauge.builder("portfolio.position-index.bytes", this, PositionIndex::heapBytes)
+                    .description("Memory taken by the position index")
+                    .tag("area", "heap")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * @return true when the index is enabled and loaded, so the positions are read from it
+     */
+    public boolean isReady() {
+        return loaded;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the positions of every client, a page of clients at a time.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        if (!enabled || loaded) {
+            return;
+        }
+        long startMillis = System.currentTimeMillis();
+        List<Long> pageClientIds = clientRepository.findClientIdsAfter(-1, PageRequest.of(0, LOAD_PAGE_SIZE));
+        while (!pageClientIds.isEmpty()) {
+            List<StockPosition> clientPositions = new ArrayList<>();
+            long clientId = NO_CLIENT;
+            for (Object[] row : clientRepository.findPositionsByClientIds(pageClientIds)) {
+                if ((Long) row[0] != clientId) {
+                    if (clientId != NO_CLIENT) {
+                        put(clientId, clientPositions);
+                    }
+                    clientId = (Long) row[0];
+                    clientPositions.clear();
+                }
+
+                //a client without stocks has a single row without a symbol
+                if (row[1] != null) {
+                    clientPositions.add(new StockPosition(clientId, (String) row[1], (Integer) row[2]));
+                }
+            }
+            if (clientId != NO_CLIENT) {
+                put(clientId, clientPositions);
+            }
+            long lastClientId = pageClientIds.get(pageClientIds.size() - 1);
+            pageClientIds = pageClientIds.size() < LOAD_PAGE_SIZE ? new ArrayList<>() :
+                    clientRepository.findClientIdsAfter(lastClientId, PageRequest.of(0, LOAD_PAGE_SIZE));
+        }
+        loaded = true;
+        logger.info("Indexed {} positions of {} clients in {} ms, {} bytes off the heap and {} bytes on it",
+                positionCount(), clientCount(), System.currentTimeMillis() - startMillis, offHeapBytes(), heapBytes());
+    }
+
+    /**
+     * Sets the client's positions once the current transaction commits, or immediately when there is no transaction.
+     * Does nothing when the index is disabled.
+     * @param clientId the client whose portfolio was written
+     * @param clientPositions all of the client's positions after the write
+     */
+    public void putAfterCommit(long clientId, List<StockPosition> clientPositions) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    put(clientId, clientPositions);
+                }
+            });
+        } else {
+            put(clientId, clientPositions);
+        }
+    }
+
+    /**
+     * Sets all of the client's positions, adding the client when the index does not hold him.
+     */
+    public void put(long clientId, List<StockPosition> clientPositions) {
+        lock.writeLock().lock();
+        try {
+            int count = clientPositions.size();
+            int slot = slot(clientId);
+            int offset;
+            if (clientIds[slot] == clientId && count <= count(entries[slot])) {
+
+                //overwriting the client's positions in place, the rest of them stay unused
+                offset = offset(entries[slot]);
+                livePositions -= count(entries[slot]) - count;
+            } else {
+                if (clientIds[slot] == clientId) {
+                    livePositions -= count(entries[slot]);
+                    entries[slot] = entry(0, 0);
+                }
+                if (usedPositions + count > positions.capacity() / POSITION_BYTES) {
+                    compact(count);
+                }
+                if (clientIds[slot] != clientId) {
+                    if ((clientCount + 1) * 2 > clientIds.length) {
+                        rehash(clientIds.length * 2);
+                    }
+                    slot = slot(clientId);
+                    clientIds[slot] = clientId;
+                    clientCount++;
+                }
+                offset = usedPositions;
+                usedPositions += count;
+                livePositions += count;
+            }
+
+            for (int i = 0; i < count; i++) {
+                StockPosition position = clientPositions.get(i);
+                int byteOffset = (offset + i) * POSITION_BYTES;
+                positions.putInt(byteOffset, symbolId(position.getStockSymbol()));
+                positions.putInt(byteOffset + 4, position.getStockAmount());
+            }
+            entries[slot] = entry(offset, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the client's positions, in the order they were written, or null when the index does not hold him
+     */
+    public List<StockPosition> positions(long clientId) {
+        lock.readLock().lock();
+        try {
+            int slot = slot(clientId);
+            if (clientIds[slot] != clientId) {
+                return null;
+            }
+            int offset = offset(entries[slot]);
+            int count = count(entries[slot]);
+            List<StockPosition> clientPositions = new ArrayList<>(count);
+            for (int position = offset; position < offset + count; position++) {
+                clientPositions.add(new StockPosition(clientId, symbols[positions.getInt(position * POSITION_BYTES)],
+                        positions.getInt(position * POSITION_BYTES + 4)));
+            }
+            return clientPositions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the positions of a page of clients into the columns of a {@link ClientPositionsPage},
+     * resolving every symbol of the dictionary in the price snapshot once.
+     * @param pageClientIds the page's clients, the clients the index does not hold are left out of the page
+     */
+    ClientPositionsPage page(Collection<Long> pageClientIds, PriceHistory priceHistory) {
+        long[] sortedClientIds = new long[pageClientIds.size()];
+        int clients = 0;
+        for (Long clientId : pageClientIds) {
+            sortedClientIds[clients++] = clientId;
+        }
+        Arrays.sort(sortedClientIds);
+
+        lock.readLock().lock();
+        try {
+            long[] pageEntries = new long[sortedClientIds.length];
+            int indexedClients = 0;
+            int pagePositions = 0;
+            for (long clientId : sortedClientIds) {
+                int slot = slot(clientId);
+                if (clientIds[slot] == clientId &&
+                        (indexedClients == 0 || sortedClientIds[indexedClients - 1] != clientId)) {
+                    sortedClientIds[indexedClients] = clientId;
+                    pageEntries[indexedClients++] = entries[slot];
+                    pagePositions += count(entries[slot]);
+                }
+            }
+
+            int[] symbolIndexes = new int[symbolIds.size()];
+            Arrays.fill(symbolIndexes, Integer.MIN_VALUE);
+            int[] positionOffsets = new int[indexedClients + 1];
+            int[] pageSymbolIndexes = new int[pagePositions];
+            int[] amounts = new int[pagePositions];
+            String[] pageSymbols = new String[pagePositions];
+            int pagePosition = 0;
+            for (int client = 0; client < indexedClients; client++) {
+                int offset = offset(pageEntries[client]);
+                for (int position = offset; position < offset + count(pageEntries[client]); position++) {
+                    int symbolId = positions.getInt(position * POSITION_BYTES);
+                    if (symbolIndexes[symbolId] == Integer.MIN_VALUE) {
+                        symbolIndexes[symbolId] = priceHistory.indexOf(symbols[symbolId]);
+                    }
+                    pageSymbols[pagePosition] = symbols[symbolId];
+                    pageSymbolIndexes[pagePosition] = symbolIndexes[symbolId];
+                    amounts[pagePosition] = positions.getInt(position * POSITION_BYTES + 4);
+                    pagePosition++;
+                }
+                positionOffsets[client + 1] = pagePosition;
+            }
+            return new ClientPositionsPage(Arrays.copyOf(sortedClientIds, indexedClients), positionOffsets,
+                    pageSymbolIndexes, amounts, pageSymbols);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int clientCount() {
+        lock.readLock().lock();
+        try {
+            return clientCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int positionCount() {
+        lock.readLock().lock();
+        try {
+            return livePositions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the size of the positions buffer
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return positions.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the size of the clients table and of the symbols dictionary's arrays, the symbols' strings are shared
+     *         with the price history so they are not counted
+     */
+    public long heapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) clientIds.length * 16 + (long) symbols.length * 4 + symbolIds.size() * 48L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This aid method is responsible to copy the positions in use into a new buffer, twice as large as them
+     * together with the positions about to be written.
+     */
+    private void compact(int positionsToWrite) {
+        long capacity = Math.max(INITIAL_POSITIONS, 2L * (livePositions + positionsToWrite));
+        if (livePositions + positionsToWrite > MAX_POSITIONS) {
+            throw new IllegalStateException("The position index cannot hold more than " + MAX_POSITIONS + " positions");
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect((int) Math.min(capacity, MAX_POSITIONS) * POSITION_BYTES)
+                .order(ByteOrder.nativeOrder());
+        int compactedPositions = 0;
+        for (int slot = 0; slot < clientIds.length; slot++) {
+            if (clientIds[slot] != NO_CLIENT) {
+                int offset = offset(entries[slot]);
+                int count = count(entries[slot]);
+                for (int position = offset; position < offset + count; position++) {
+                    compacted.putLong((compactedPositions + position - offset) * POSITION_BYTES,
+                            positions.getLong(position * POSITION_BYTES));
+                }
+                entries[slot] = entry(compactedPositions, count);
+                compactedPositions += count;
+            }
+        }
+        positions = compacted;
+        usedPositions = compactedPositions;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldClientIds = clientIds;
+        long[] oldEntries = entries;
+        clientIds = newClientIds(capacity);
+        entries = new long[capacity];
+        for (int oldSlot = 0; oldSlot < oldClientIds.length; oldSlot++) {
+            if (oldClientIds[oldSlot] != NO_CLIENT) {
+                int slot = slot(oldClientIds[oldSlot]);
+                clientIds[slot] = oldClientIds[oldSlot];
+                entries[slot] = oldEntries[oldSlot];
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the client in the table, or the empty slot to add him at
+     */
+    private int slot(long clientId) {
+        int mask = clientIds.length - 1;
+        int slot = (int) ((clientId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (clientIds[slot] != clientId && clientIds[slot] != NO_CLIENT) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int symbolId(String symbol) {
+        Integer symbolId = symbolIds.get(symbol);
+        if (symbolId == null) {
+            symbolId = symbolIds.size();
+            if (symbolId == symbols.length) {
+                symbols = Arrays.copyOf(symbols, symbols.length * 2);
+            }
+            symbols[symbolId] = symbol;
+            symbolIds.put(symbol, symbolId);
+        }
+        return symbolId;
+    }
+
+    private static long[] newClientIds(int capacity) {
+        long[] clientIds = new long[capacity];
+        Arrays.fill(clientIds, NO_CLIENT);
+        return clientIds;
+    }
+
+    private static long entry(int offset, int count) {
+        return ((long) offset << 32) | (count & 0xFFFFFFFFL);
+    }
+
+    private static int offset(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int count(long entry) {
+        return (int) entry;
+    }
+}
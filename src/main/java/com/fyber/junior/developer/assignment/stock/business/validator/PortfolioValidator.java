@@ -1,34 +1,81 @@
 package com.fyber.junior.developer.assignment.stock.business.validator;
 
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocks;
 import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
-import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
-import com.fyber.junior.developer.assignment.stock.rest.Exceptions.EntityNotFoundException;
-import com.fyber.junior.developer.assignment.stock.rest.Exceptions.InternalServerErrorException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation.Reason;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class PortfolioValidator
 {
-    private static String supportedStocksFilePath = "supportedStocks.txt";
+    //a per-thread bitset of the already seen stocks, reused between requests so a valid portfolio allocates nothing
+    private static final ThreadLocal<long[]> seenStocksBitset = ThreadLocal.withInitial(() -> new long[1]);
 
     /**
      * This Function is responsible to validate a given portfolio
-     * Will throw a fitting exception if the portfolio is violating the defined validation rules
+     * The stocks are validated in a single pass over the list, without any I/O, and all of the violations
+     * are collected and thrown together in a single exception. An empty entry in the list is a violation too.
      * @param stockList a list of the incoming stocks
-     * @throws BadArgumentException,EntityNotFoundException
+     * @param supportedStocks the supported stocks snapshot to validate against
+     * @throws PortfolioValidationException if the portfolio is violating the defined validation rules
      */
-    public static void validatePortfolio(List<Stock> stockList,boolean portfolioExist){
-        stockList.forEach(stock->{
-            validateAmount(stock,portfolioExist);
-            validateSymbolPattern(stock);
-            validateStockInFile(stock);
-        });
+    public static void validatePortfolio(List<Stock> stockList,boolean portfolioExist,SupportedStocks supportedStocks){
+        long[] seenStocks = seenStocksBitset(supportedStocks.size());
+        List<StockViolation> violations = null;
 
-        validateRepeatingStocks(stockList);
+        try {
+            for (Stock stock : stockList) {
+                Reason violation = stock == null ? Reason.MISSING_STOCK
+                        : validateStock(stock, portfolioExist, supportedStocks, seenStocks);
+                if (violation != null) {
+                    if (violations == null) {
+                        violations = new ArrayList<>();
+                    }
+                    violations.add(stock == null ? new StockViolation(violation, null, 0)
+                            : new StockViolation(violation, stock.getstockSymbol(), stock.getStockAmount()));
+                }
+            }
+        } finally {
+            clearSeenStocks(stockList, supportedStocks, seenStocks);
+        }
+
+        if (violations != null) {
+            throw new PortfolioValidationException(violations);
+        }
+    }
+
+    /**
+     * This method is responsible to run all of the validation rules on a single stock
+     * A supported stock is marked as seen even when its amount is invalid, so a later duplicate of it is still
+     * reported as repeating.
+     * @param stockToValidate the stock to validate
+     * @param seenStocks a bitset of the stocks already seen in the incoming list
+     * @return the first broken rule, or null when the stock is valid
+     */
+    private static Reason validateStock(Stock stockToValidate, boolean portfolioExist,
+                                        SupportedStocks supportedStocks, long[] seenStocks){
+        boolean validSymbolPattern = isValidSymbolPattern(stockToValidate.getstockSymbol());
+        int stockIndex = validSymbolPattern ? supportedStocks.indexOf(stockToValidate.getstockSymbol()) : -1;
+        boolean repeating = false;
+        if(stockIndex >= 0){
+            long stockBit = 1L << stockIndex;
+            repeating = (seenStocks[stockIndex >>> 6] & stockBit) != 0;
+            seenStocks[stockIndex >>> 6] |= stockBit;
+        }
+
+        if(!isValidAmount(stockToValidate,portfolioExist)){
+            return Reason.INVALID_AMOUNT;
+        }
+        if(!validSymbolPattern){
+            return Reason.INVALID_SYMBOL;
+        }
+        if(stockIndex < 0){
+            return Reason.NOT_SUPPORTED;
+        }
+        return repeating ? Reason.REPEATING : null;
     }
 
     /**
@@ -38,85 +85,54 @@ public class PortfolioValidator
      * Otherwise, in a new portfolio situations it is allowed to hold 1 stock and above.
      * @param stockToValidate the stock to validate
      */
-    private static void validateAmount(Stock stockToValidate,boolean portfolioExist){
-        if(portfolioExist){
-            if(stockToValidate.getStockAmount()<0){
-                throw new BadArgumentException("Invalid amount '" +stockToValidate.getStockAmount()+ "' for stock '" +
-                        stockToValidate.getstockSymbol()+ "'");
-            }
-        }else if(stockToValidate.getStockAmount()<1){
-            throw new BadArgumentException("Invalid amount '" +stockToValidate.getStockAmount()+ "' for stock '" +
-                    stockToValidate.getstockSymbol()+ "'");
-        }
+    private static boolean isValidAmount(Stock stockToValidate,boolean portfolioExist){
+        return stockToValidate.getStockAmount() >= (portfolioExist ? 0 : 1);
     }
 
     /**
-     * This method is responsible to check if the pattern of the stock is legit
-     * @param stockToValidate the stock to validate
+     * This method is responsible to check if the pattern of the stock is legit,
+     * only upper case english letters are allowed.
+     * @param stockSymbol the symbol to validate
      */
-    private static void validateSymbolPattern(Stock stockToValidate){
-        if(!stockToValidate.getstockSymbol().matches("^[A-Z]*$")){
-            throw new BadArgumentException("Invalid stock symbol'" +stockToValidate.getstockSymbol()+ "'");
+    private static boolean isValidSymbolPattern(String stockSymbol){
+        if(stockSymbol == null){
+            return false;
         }
+        for (int i = 0; i < stockSymbol.length(); i++) {
+            char c = stockSymbol.charAt(i);
+            if(c < 'A' || c > 'Z'){
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * This method is responsible to check if the stock is supported by the system.
-     * It is doing so by checking in the supported-stocks file.
-     * @param stockToValidate the stock to validate
+     * This aid method is responsible to return the thread's seen-stocks bitset, large enough for all of the
+     * supported stocks. It grows only when the supported stocks grow.
      */
-    private static void validateStockInFile(Stock stockToValidate){
-        File supportedStocksFile = new File(supportedStocksFilePath);
-        BufferedReader br = null;
-        String line ;
-        boolean stockFound = false;
-
-        try {
-            br = new BufferedReader(new FileReader(supportedStocksFile));
-            while ((line = br.readLine()) != null) {
-
-                // use comma as separator
-                String[] stocksSymbolsInFile= line.split(",");
-
-                //for every stock-symbol in file
-                for (String stockSymbol:stocksSymbolsInFile)
-                {
-                    //check if the incoming stock symbol equals to it
-                    if(stockSymbol.equals(stockToValidate.getstockSymbol())){
-                        stockFound = true;
-                        break;
-                    }
-                }
-                if(!stockFound){
-                    throw new BadArgumentException("The stock '" +stockToValidate.getstockSymbol()+ "' is not supported");
-                }
-            }
-        } catch (IOException e) {
-            throw new InternalServerErrorException("Error while processing your request, please try again later");
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    throw new InternalServerErrorException("Error while processing your request, please try again later");
-                }
-            }
+    private static long[] seenStocksBitset(int supportedStocksCount){
+        long[] seenStocks = seenStocksBitset.get();
+        int requiredWords = (supportedStocksCount + 63) >>> 6;
+        if(seenStocks.length < requiredWords){
+            seenStocks = new long[requiredWords];
+            seenStocksBitset.set(seenStocks);
         }
+        return seenStocks;
     }
 
     /**
-     * This method is responsible to check there is no repeating in the incoming stocks.
-     * @param incomingStockList the list of the incoming stocks
+     * This aid method is responsible to clear only the bitset words that the incoming stocks could have set,
+     * so clearing costs the size of the portfolio and not the size of the supported stocks.
      */
-    private static void validateRepeatingStocks(List<Stock> incomingStockList){
-
-        for (int i =0; i <incomingStockList.size();i++)
-            for(int j=i+1; j<incomingStockList.size();j++)
-            {
-                if(incomingStockList.get(i).getstockSymbol().equals(incomingStockList.get(j).getstockSymbol())){
-                    throw new BadArgumentException("The stock '" +incomingStockList.get(i).getstockSymbol()+
-                            "' appears more than once");
+    private static void clearSeenStocks(List<Stock> stockList, SupportedStocks supportedStocks, long[] seenStocks){
+        for (Stock stock : stockList) {
+            if(stock != null && stock.getstockSymbol() != null){
+                int stockIndex = supportedStocks.indexOf(stock.getstockSymbol());
+                if(stockIndex >= 0){
+                    seenStocks[stockIndex >>> 6] = 0;
                 }
             }
+        }
     }
 }
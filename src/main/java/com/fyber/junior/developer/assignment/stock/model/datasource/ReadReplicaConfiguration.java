@@ -0,0 +1,44 @@
+package com.fyber.junior.developer.assignment.stock.model.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sends the read only transactions to a read replica when "portfolio.datasource.replica.url" is set.
+ * The primary is configured by the "spring.datasource" properties as without a replica, and the replica
+ * takes the primary's credentials unless it has its own. The pools' metrics are tagged "primary" and "replica".
+ */
+@Configuration
+@ConditionalOnProperty("portfolio.datasource.replica.url")
+public class ReadReplicaConfiguration {
+
+    /**
+     * The data source used by JPA, the schema initialization and everything else. The writes, the schema
+     * and the reads outside of a read only transaction go to the primary.
+     */
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(DataSourceProperties properties, MeterRegistry meterRegistry,
+                                                 @Value("${portfolio.datasource.replica.url}") String replicaUrl,
+                                                 @Value("${portfolio.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                                 @Value("${portfolio.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword) {
+        HikariDataSource primaryDataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primaryDataSource.setPoolName("primary");
+        primaryDataSource.setMetricRegistry(meterRegistry);
+
+        HikariDataSource replicaDataSource = new HikariDataSource();
+        replicaDataSource.setPoolName("replica");
+        replicaDataSource.setDriverClassName(properties.determineDriverClassName());
+        replicaDataSource.setJdbcUrl(replicaUrl);
+        replicaDataSource.setUsername(replicaUsername);
+        replicaDataSource.setPassword(replicaPassword);
+        replicaDataSource.setMetricRegistry(meterRegistry);
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource);
+    }
+}
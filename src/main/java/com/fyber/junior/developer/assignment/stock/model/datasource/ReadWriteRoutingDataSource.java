@@ -0,0 +1,58 @@
+package com.fyber.junior.developer.assignment.stock.model.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes the connections of read only transactions to the read replica, and all of the others to the primary.
+ * A transaction is known as read only only once it began, after its connection was asked for, so the target
+ * connection is picked lazily on the first statement. Closing the data source closes both pools.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final HikariDataSource primaryDataSource;
+    private final HikariDataSource replicaDataSource;
+
+    public ReadWriteRoutingDataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaDataSource = replicaDataSource;
+
+        AbstractRoutingDataSource routingDataSource = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+            }
+        };
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primaryDataSource);
+        targetDataSources.put(REPLICA, replicaDataSource);
+        routingDataSource.setTargetDataSources(targetDataSources);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        setTargetDataSource(routingDataSource);
+        afterPropertiesSet();
+    }
+
+    public HikariDataSource getPrimaryDataSource() {
+        return primaryDataSource;
+    }
+
+    public HikariDataSource getReplicaDataSource() {
+        return replicaDataSource;
+    }
+
+    @Override
+    public void close() {
+        primaryDataSource.close();
+        replicaDataSource.close();
+    }
+}
@@ -11,11 +11,17 @@ import java.util.List;
 public class Client {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clients_seq")
+    @SequenceGenerator(name = "clients_seq", sequenceName = "CLIENTS_SEQ", allocationSize = 50)
     @NotNull
     @Column(name="CLIENT_ID")
     private long clientId;
 
+    //incremented by every write to the client's portfolio, so concurrent writes of the same client conflict
+    @Version
+    @Column(name="VERSION")
+    private long version;
+
     @OneToMany(cascade = CascadeType.ALL,orphanRemoval = true)
     @JoinColumn(name = "CLIENT_ID")
     private List<Stock> stocksList;
@@ -30,6 +36,16 @@ public class Client {
         this.clientId = clientId;
     }
 
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(long version)
+    {
+        this.version = version;
+    }
+
     public List<Stock> getStocksList()
     {
         return stocksList;
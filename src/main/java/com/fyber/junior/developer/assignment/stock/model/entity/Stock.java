@@ -23,7 +23,8 @@ public class Stock {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stocks_seq")
+    @SequenceGenerator(name = "stocks_seq", sequenceName = "STOCKS_SEQ", allocationSize = 50)
     @Column(name="STOCK_ID")
     private long stockId;
 
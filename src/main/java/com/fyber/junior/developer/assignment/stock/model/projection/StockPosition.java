@@ -0,0 +1,30 @@
+package com.fyber.junior.developer.assignment.stock.model.projection;
+
+/**
+ * A client's position in a stock, read with a JPQL constructor expression instead of a managed {@link
+ * com.fyber.junior.developer.assignment.stock.model.entity.Stock}, so hibernate neither keeps it in the
+ * persistence context nor dirty checks it.
+ */
+public final class StockPosition {
+    private final long clientId;
+    private final String stockSymbol;
+    private final int stockAmount;
+
+    public StockPosition(long clientId, String stockSymbol, int stockAmount) {
+        this.clientId = clientId;
+        this.stockSymbol = stockSymbol;
+        this.stockAmount = stockAmount;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    public int getStockAmount() {
+        return stockAmount;
+    }
+}
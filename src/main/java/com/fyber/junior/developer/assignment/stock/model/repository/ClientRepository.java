@@ -1,12 +1,56 @@
 package com.fyber.junior.developer.assignment.stock.model.repository;
 
 import com.fyber.junior.developer.assignment.stock.model.entity.Client;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ClientRepository extends JpaRepository<Client,Long> {
-    Client findByClientId(Long clientId);
     boolean existsByClientId(Long clientId);
 
+    /**
+     * Loads the client for a write of his portfolio, the client's version is incremented when the transaction
+     * commits, and the commit fails if another write incremented it first
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT c FROM Client c WHERE c.clientId = :clientId")
+    Optional<Client> findForWriteByClientId(@Param("clientId") long clientId);
+
+    /**
+     * Loads the client together with all of its stocks for a write of his portfolio,
+     * see {@link #findForWriteByClientId(long)}. The lock is given to the client's alias only,
+     * as the stocks have no version to increment
+     */
+    @Query("SELECT DISTINCT c FROM Client c LEFT JOIN FETCH c.stocksList WHERE c.clientId = :clientId")
+    @QueryHints({@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"),
+            @QueryHint(name = "org.hibernate.lockMode.c", value = "OPTIMISTIC_FORCE_INCREMENT")})
+    Optional<Client> findWithStocksForWriteByClientId(@Param("clientId") long clientId);
+
+    /**
+     * Pages through the clients' ids in ascending order, starting after the last id of the previous page
+     */
+    @Query("SELECT c.clientId FROM Client c WHERE c.clientId > :afterClientId ORDER BY c.clientId")
+    List<Long> findClientIdsAfter(@Param("afterClientId") long afterClientId, Pageable page);
+
+    /**
+     * Loads the positions of many clients in a single query, ordered by the client's id.
+     * Every row holds the client's id, the stock symbol and the stock amount, and a client without stocks
+     * has a single row with a null symbol and amount. Clients that do not exist have no rows.
+     * The stocks of every client are ordered by their id, which is the order they were saved in.
+     */
+    @Query("SELECT c.clientId, s.stockSymbol, s.stockAmount FROM Client c LEFT JOIN c.stocksList s " +
+            "WHERE c.clientId IN :clientIds ORDER BY c.clientId, s.stockId")
+    List<Object[]> findPositionsByClientIds(@Param("clientIds") Collection<Long> clientIds);
+
 }
@@ -1,14 +1,45 @@
 package com.fyber.junior.developer.assignment.stock.model.repository;
 
 import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface StockRepository extends JpaRepository<Stock,Long> {
+public interface StockRepository extends JpaRepository<Stock,Long>, StockRepositoryCustom {
+
+    /**
+     * Loads the positions of the client, in the order they were saved in
+     */
+    @Query("SELECT NEW com.fyber.junior.developer.assignment.stock.model.projection.StockPosition(" +
+            "s.clientId, s.stockSymbol, s.stockAmount) FROM Stock s WHERE s.clientId = :clientId ORDER BY s.stockId")
+    List<StockPosition> findPositionsByClientId(@Param("clientId") long clientId);
+
+    /**
+     * Streams the positions of all of the clients, grouped by their client, with a forward only cursor fetching
+     * a block of rows at a time. The positions are not managed by hibernate, so the persistence context
+     * does not grow while reading. The stream has to be read inside a transaction and closed when done.
+     */
+    @Query("SELECT NEW com.fyber.junior.developer.assignment.stock.model.projection.StockPosition(" +
+            "s.clientId, s.stockSymbol, s.stockAmount) FROM Stock s ORDER BY s.clientId, s.stockId")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<StockPosition> streamAllPositionsOrderedByClientId();
+
+    @Modifying
+    @Query("DELETE FROM Stock s WHERE s.clientId = :clientId")
+    int deleteByClientId(@Param("clientId") long clientId);
 
-    List<Stock> findByClientId (long clientId);
-    Stock findByStockSymbolAndClientId(String StockSymbol,Long clientId);
-    void deleteByClientId(long clientId);
+    @Modifying
+    @Query("DELETE FROM Stock s WHERE s.clientId = :clientId AND s.stockSymbol IN :stockSymbols")
+    int deleteByClientIdAndStockSymbols(@Param("clientId") long clientId,
+                                        @Param("stockSymbols") Collection<String> stockSymbols);
 }
@@ -0,0 +1,14 @@
+package com.fyber.junior.developer.assignment.stock.model.repository;
+
+import java.util.Map;
+
+public interface StockRepositoryCustom {
+
+    /**
+     * Updates the amounts of many stocks with a bulk UPDATE statement for every 128 of them. The ids and amounts
+     * are bound as parameters, so the few shapes of the statement are parsed once and reused
+     * @param newAmountsByStockId the new amount of every stock to update, keyed by the stock's id
+     * @return the number of updated stocks
+     */
+    int updateStockAmounts(Map<Long, Integer> newAmountsByStockId);
+}
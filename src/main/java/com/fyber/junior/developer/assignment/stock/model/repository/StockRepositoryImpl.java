@@ -0,0 +1,57 @@
+package com.fyber.junior.developer.assignment.stock.model.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class StockRepositoryImpl implements StockRepositoryCustom {
+
+    //the stocks are updated in chunks of up to 128, every chunk padded to a power of two by repeating its last stock,
+    //so there are 8 shapes of the statement and every one of them is parsed once and cached by hibernate
+    static final int MAX_CHUNK_SIZE = 128;
+    private static final String[] UPDATES_BY_SIZE_BITS = new String[Integer.numberOfTrailingZeros(MAX_CHUNK_SIZE) + 1];
+
+    static {
+        for (int sizeBits = 0; sizeBits < UPDATES_BY_SIZE_BITS.length; sizeBits++) {
+            int size = 1 << sizeBits;
+            StringBuilder jpql = new StringBuilder("UPDATE Stock s SET s.stockAmount = CASE s.stockId");
+            for (int i = 0; i < size; i++) {
+                jpql.append(" WHEN :id").append(i).append(" THEN :amount").append(i);
+            }
+            jpql.append(" ELSE s.stockAmount END WHERE s.stockId IN (");
+            for (int i = 0; i < size; i++) {
+                jpql.append(i == 0 ? ":id" : ", :id").append(i);
+            }
+            UPDATES_BY_SIZE_BITS[sizeBits] = jpql.append(")").toString();
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int updateStockAmounts(Map<Long, Integer> newAmountsByStockId) {
+        List<Map.Entry<Long, Integer>> newAmounts = new ArrayList<>(newAmountsByStockId.entrySet());
+        int updated = 0;
+        for (int from = 0; from < newAmounts.size(); from += MAX_CHUNK_SIZE) {
+            updated += updateChunk(newAmounts.subList(from, Math.min(from + MAX_CHUNK_SIZE, newAmounts.size())));
+        }
+        return updated;
+    }
+
+    private int updateChunk(List<Map.Entry<Long, Integer>> newAmounts) {
+        int sizeBits = 32 - Integer.numberOfLeadingZeros(newAmounts.size() - 1);
+        Query update = entityManager.createQuery(UPDATES_BY_SIZE_BITS[sizeBits]);
+        for (int i = 0; i < 1 << sizeBits; i++) {
+
+            //a repeated stock matches its first WHEN and is counted once by the IN
+            Map.Entry<Long, Integer> newAmount = newAmounts.get(Math.min(i, newAmounts.size() - 1));
+            update.setParameter("id" + i, newAmount.getKey());
+            update.setParameter("amount" + i, newAmount.getValue());
+        }
+        return update.executeUpdate();
+    }
+}
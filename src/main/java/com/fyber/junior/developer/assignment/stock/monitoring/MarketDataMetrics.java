@@ -0,0 +1,71 @@
+package com.fyber.junior.developer.assignment.stock.monitoring;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.ReloadableFileStore;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocksStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the state of the market data stores:
+ * "market.data.reloads" counts the reloads of every store, tagged by the store and the outcome,
+ * "market.data.symbols" and "market.data.supported.stocks" are the sizes of the current snapshots,
+ * and the "market.data.parse" gauges describe the last parsed price history csv file.
+ * The meters read the counters kept by the stores, so nothing is added to the reload path.
+ * The cached clients are published by the "cache.size" gauge of the "portfolio.values" cache.
+ */
+@Component
+public class MarketDataMetrics implements MeterBinder {
+    private PriceHistoryStore priceHistoryStore;
+    private SupportedStocksStore supportedStocksStore;
+
+    @Autowired
+    public MarketDataMetrics(PriceHistoryStore priceHistoryStore, SupportedStocksStore supportedStocksStore) {
+        this.priceHistoryStore = priceHistoryStore;
+        this.supportedStocksStore = supportedStocksStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindReloads(registry, "price.history", priceHistoryStore);
+        bindReloads(registry, "supported.stocks", supportedStocksStore);
+
+        Gauge.builder("market.data.symbols", priceHistoryStore, store -> store.getPriceHistory().symbolCount())
+                .description("Symbols in the current price history")
+                .register(registry);
+        Gauge.builder("market.data.supported.stocks", supportedStocksStore, store -> store.getSupportedStocks().size())
+                .description("Symbols in the current supported stocks")
+                .register(registry);
+
+        Gauge.builder("market.data.parse.rows", priceHistoryStore, PriceHistoryStore::getLastParsedRows)
+                .description("Rows of the last parsed price history csv file")
+                .register(registry);
+        Gauge.builder("market.data.parse.malformed.rows", priceHistoryStore, PriceHistoryStore::getLastMalformedRows)
+                .description("Malformed rows of the last parsed price history csv file")
+                .register(registry);
+        Gauge.builder("market.data.parse.rows.per.second", priceHistoryStore, PriceHistoryStore::getLastRowsPerSecond)
+                .description("Parsing throughput of the last parsed price history csv file")
+                .register(registry);
+    }
+
+    private static void bindReloads(MeterRegistry registry, String storeName, ReloadableFileStore<?> store) {
+        bindReloads(registry, storeName, "loaded", store, ReloadableFileStore::getLoads);
+        bindReloads(registry, storeName, "rejected", store, ReloadableFileStore::getRejections);
+        bindReloads(registry, storeName, "failed", store, ReloadableFileStore::getFailures);
+    }
+
+    private static void bindReloads(MeterRegistry registry, String storeName, String outcome,
+                                    ReloadableFileStore<?> store, ToDoubleFunction<ReloadableFileStore<?>> count) {
+        FunctionCounter.builder("market.data.reloads", store, count)
+                .description("Reloads of the market data files")
+                .tag("store", storeName)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
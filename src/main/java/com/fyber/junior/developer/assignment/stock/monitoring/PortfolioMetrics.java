@@ -0,0 +1,147 @@
+package com.fyber.junior.developer.assignment.stock.monitoring;
+
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The meters of the portfolio service operations:
+ * "portfolio.service" times every service method, tagged by the method,
+ * "portfolio.stage" times the stages of the service methods, tagged by the method and the {@link Stage},
+ * and "portfolio.validation.failures" counts the rejected stocks and portfolios, tagged by the reason.
+ * The meters are registered on their first use and kept by the method and the reason, so a call costs
+ * a map lookup, a clock read per stage and the timer updates.
+ */
+@Component
+public class PortfolioMetrics {
+
+    public static final String EMPTY_PORTFOLIO = "empty_portfolio";
+    public static final String NOT_OWNED = "not_owned";
+
+    private MeterRegistry meterRegistry;
+    private final Map<String, MethodTimers> methodTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> validationFailures = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PortfolioMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The stages of a service method, every stage is timed from the end of the previous one.
+     */
+    public enum Stage {
+        VALIDATE("validate"),
+        PRICE_LOOKUP("price.lookup"),
+        DB_LOAD("db.load"),
+        COMPUTE("compute"),
+        DB_WRITE("db.write");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Starts timing a call of a service method, the call has to be ended in a finally block.
+     * @param method the name of the service method
+     */
+    public ServiceCall start(String method) {
+        return new ServiceCall(methodTimers.computeIfAbsent(method, MethodTimers::new));
+    }
+
+    /**
+     * Counts every violation of a rejected portfolio by its reason.
+     */
+    public void validationFailed(PortfolioValidationException e) {
+        for (StockViolation violation : e.getViolations()) {
+            validationFailed(violation.getReason().name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * @param reason the reason the request was rejected, like {@link #EMPTY_PORTFOLIO}
+     */
+    public void validationFailed(String reason) {
+        validationFailures.computeIfAbsent(reason, tag -> Counter.builder("portfolio.validation.failures")
+                .description("Stocks and portfolios rejected by the validation")
+                .tag("reason", tag)
+                .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * The timers of a single service method and of its stages.
+     */
+    private final class MethodTimers {
+        private final String method;
+        private final Timer timer;
+        private final AtomicReferenceArray<Timer> stageTimers = new AtomicReferenceArray<>(Stage.values().length);
+
+        private MethodTimers(String method) {
+            this.method = method;
+            this.timer = Timer.builder("portfolio.service")
+                    .description("Portfolio service method calls")
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+
+        private Timer stageTimer(Stage stage) {
+            Timer stageTimer = stageTimers.get(stage.ordinal());
+
+            //registering is idempotent, so two threads racing here end up with the same timer
+            if (stageTimer == null) {
+                stageTimer = Timer.builder("portfolio.stage")
+                        .description("Stages of the portfolio service method calls")
+                        .tag("method", method)
+                        .tag("stage", stage.tag)
+                        .register(meterRegistry);
+                stageTimers.set(stage.ordinal(), stageTimer);
+            }
+            return stageTimer;
+        }
+    }
+
+    /**
+     * A single timed call of a service method. It is used by the thread that started it only.
+     */
+    public static final class ServiceCall {
+        private final MethodTimers timers;
+        private final long startNanos;
+        private long stageStartNanos;
+
+        private ServiceCall(MethodTimers timers) {
+            this.timers = timers;
+            this.startNanos = System.nanoTime();
+            this.stageStartNanos = startNanos;
+        }
+
+        /**
+         * Records the time since the previous stage ended, or since the call started, as the given stage.
+         */
+        public void stage(Stage stage) {
+            long now = System.nanoTime();
+            timers.stageTimer(stage).record(now - stageStartNanos, TimeUnit.NANOSECONDS);
+            stageStartNanos = now;
+        }
+
+        /**
+         * Records the time since the call started, whether it succeeded or not.
+         */
+        public void end() {
+            timers.timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
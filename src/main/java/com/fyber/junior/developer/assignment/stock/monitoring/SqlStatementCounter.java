@@ -0,0 +1,30 @@
+package com.fyber.junior.developer.assignment.stock.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ * It is registered as Hibernate's statement inspector, so every query, insert batch and bulk statement
+ * passes through it. The count is reset at the start of every request by the {@link SqlStatementMetricsInterceptor}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> statementCount = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        statementCount.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        statementCount.get()[0] = 0;
+    }
+
+    /**
+     * @return the number of statements prepared on the current thread since the last reset
+     */
+    public static int count() {
+        return statementCount.get()[0];
+    }
+}
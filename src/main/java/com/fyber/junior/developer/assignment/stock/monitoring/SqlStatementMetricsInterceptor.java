@@ -0,0 +1,42 @@
+package com.fyber.junior.developer.assignment.stock.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many SQL statements every request issued, as the "portfolio.sql.statements" distribution
+ * tagged by the request's method and route.
+ * A request that was run on another thread hands its count over in the {@link #STATEMENTS_ATTRIBUTE} attribute.
+ */
+public class SqlStatementMetricsInterceptor extends HandlerInterceptorAdapter {
+    public static final String STATEMENTS_ATTRIBUTE = SqlStatementMetricsInterceptor.class.getName() + ".statements";
+
+    private MeterRegistry meterRegistry;
+
+    public SqlStatementMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Object statements = request.getAttribute(STATEMENTS_ATTRIBUTE);
+        DistributionSummary.builder("portfolio.sql.statements")
+                .description("SQL statements issued per request")
+                .tag("method", request.getMethod())
+                .tag("uri", route == null ? "UNKNOWN" : route.toString())
+                .register(meterRegistry)
+                .record(statements == null ? SqlStatementCounter.count() : (Integer) statements);
+    }
+}
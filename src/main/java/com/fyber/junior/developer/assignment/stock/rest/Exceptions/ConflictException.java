@@ -0,0 +1,9 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConflictException extends RuntimeException{
+    public ConflictException(String message){super(message);}
+}
@@ -1,6 +1,8 @@
 package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -19,7 +21,7 @@ public class CustomizedResponseEntityExceptionHandler extends ResponseEntityExce
         ExceptionResponse exceptionResponse =
                 new ExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true));
 
-        return new ResponseEntity(exceptionResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @ExceptionHandler(EntityNotFoundException.class)
@@ -27,7 +29,7 @@ public class CustomizedResponseEntityExceptionHandler extends ResponseEntityExce
         ExceptionResponse exceptionResponse =
                 new ExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true));
 
-        return new ResponseEntity(exceptionResponse, HttpStatus.NOT_FOUND);
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(BadArgumentException.class)
@@ -35,7 +37,59 @@ public class CustomizedResponseEntityExceptionHandler extends ResponseEntityExce
         ExceptionResponse exceptionResponse =
                 new ExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true));
 
-        return new ResponseEntity(exceptionResponse, HttpStatus.NOT_ACCEPTABLE);
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    @ExceptionHandler(ConflictException.class)
+    public final ResponseEntity<Object> handleConflictException(ConflictException ex, WebRequest request){
+        ExceptionResponse exceptionResponse =
+                new ExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true));
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public final ResponseEntity<Object> handleServiceUnavailableException(ServiceUnavailableException ex, WebRequest request){
+        ExceptionResponse exceptionResponse =
+                new ExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true));
+
+        //asking the client to back off for a second before retrying
+        HttpHeaders headers = jsonHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity(exceptionResponse, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(PortfolioValidationException.class)
+    public final ResponseEntity<Object> handlePortfolioValidationException(PortfolioValidationException ex, WebRequest request){
+        ValidationExceptionResponse exceptionResponse =
+                new ValidationExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true),ex.getViolations());
+
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    @ExceptionHandler(PortfolioImportException.class)
+    public final ResponseEntity<Object> handlePortfolioImportException(PortfolioImportException ex, WebRequest request){
+        ImportExceptionResponse exceptionResponse =
+                new ImportExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true),ex);
+
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    @ExceptionHandler(TickIngestionException.class)
+    public final ResponseEntity<Object> handleTickIngestionException(TickIngestionException ex, WebRequest request){
+        TickIngestionExceptionResponse exceptionResponse =
+                new TickIngestionExceptionResponse(new Date(),ex.getMessage(),request.getDescription(true),ex);
+
+        return new ResponseEntity(exceptionResponse, jsonHeaders(), HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    /**
+     * The errors are always written as json, also to a request that accepts an event stream only,
+     * which would otherwise be answered with a 406 instead of the error.
+     */
+    private static HttpHeaders jsonHeaders(){
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        return headers;
     }
 
 }
@@ -0,0 +1,31 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportExceptionResponse extends ExceptionResponse {
+    private long index;
+    private long importedCount;
+    private Long lastClientId;
+
+    public ImportExceptionResponse(Date timestamp, String message, String details, PortfolioImportException ex) {
+        super(timestamp, message, details);
+        this.index = ex.getIndex();
+        this.importedCount = ex.getImportedCount();
+        this.lastClientId = ex.getLastClientId();
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public Long getLastClientId() {
+        return lastClientId;
+    }
+}
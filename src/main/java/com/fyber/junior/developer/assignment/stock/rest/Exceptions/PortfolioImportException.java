@@ -0,0 +1,36 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the input of an import breaks, the portfolios before it were already imported.
+ */
+@ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
+public class PortfolioImportException extends BadArgumentException {
+    private final long index;
+    private final long importedCount;
+    private final Long lastClientId;
+
+    public PortfolioImportException(String message, long index, long importedCount, Long lastClientId) {
+        super(message);
+        this.index = index;
+        this.importedCount = importedCount;
+        this.lastClientId = lastClientId;
+    }
+
+    /**
+     * @return the position of the broken portfolio in the imported input, the import can be resumed from it
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public Long getLastClientId() {
+        return lastClientId;
+    }
+}
@@ -0,0 +1,21 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
+public class PortfolioValidationException extends BadArgumentException {
+    private final List<StockViolation> violations;
+
+    public PortfolioValidationException(List<StockViolation> violations) {
+        super(violations.stream().map(StockViolation::getMessage).collect(Collectors.joining("; ")));
+        this.violations = violations;
+    }
+
+    public List<StockViolation> getViolations() {
+        return violations;
+    }
+}
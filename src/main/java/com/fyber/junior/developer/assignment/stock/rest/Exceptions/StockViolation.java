@@ -0,0 +1,49 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+/**
+ * A single validation rule broken by one of the incoming stocks.
+ * The message is built only when it is read, so collecting violations stays cheap.
+ */
+public class StockViolation {
+
+    public enum Reason {
+        MISSING_STOCK,
+        INVALID_AMOUNT,
+        INVALID_SYMBOL,
+        NOT_SUPPORTED,
+        REPEATING
+    }
+
+    private final Reason reason;
+    private final String stockSymbol;
+    private final int stockAmount;
+
+    public StockViolation(Reason reason, String stockSymbol, int stockAmount) {
+        this.reason = reason;
+        this.stockSymbol = stockSymbol;
+        this.stockAmount = stockAmount;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    public String getMessage() {
+        switch (reason) {
+            case MISSING_STOCK:
+                return "A stock is missing, the list holds an empty entry";
+            case INVALID_AMOUNT:
+                return "Invalid amount '" + stockAmount + "' for stock '" + stockSymbol + "'";
+            case INVALID_SYMBOL:
+                return "Invalid stock symbol '" + stockSymbol + "'";
+            case NOT_SUPPORTED:
+                return "The stock '" + stockSymbol + "' is not supported";
+            default:
+                return "The stock '" + stockSymbol + "' appears more than once";
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the input of a batch of ticks breaks, the ticks before it were already ingested.
+ */
+@ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
+public class TickIngestionException extends BadArgumentException {
+    private final long accepted;
+    private final long stale;
+    private final long rejected;
+
+    public TickIngestionException(String message, long accepted, long stale, long rejected) {
+        super(message);
+        this.accepted = accepted;
+        this.stale = stale;
+        this.rejected = rejected;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getStale() {
+        return stale;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,28 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import java.util.Date;
+
+public class TickIngestionExceptionResponse extends ExceptionResponse {
+    private long accepted;
+    private long stale;
+    private long rejected;
+
+    public TickIngestionExceptionResponse(Date timestamp, String message, String details, TickIngestionException ex) {
+        super(timestamp, message, details);
+        this.accepted = ex.getAccepted();
+        this.stale = ex.getStale();
+        this.rejected = ex.getRejected();
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getStale() {
+        return stale;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,17 @@
+package com.fyber.junior.developer.assignment.stock.rest.Exceptions;
+
+import java.util.Date;
+import java.util.List;
+
+public class ValidationExceptionResponse extends ExceptionResponse {
+    private List<StockViolation> violations;
+
+    public ValidationExceptionResponse(Date timestamp, String message, String details, List<StockViolation> violations) {
+        super(timestamp, message, details);
+        this.violations = violations;
+    }
+
+    public List<StockViolation> getViolations() {
+        return violations;
+    }
+}
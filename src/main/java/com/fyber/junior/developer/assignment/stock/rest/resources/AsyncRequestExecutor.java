@@ -0,0 +1,113 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fyber.junior.developer.assignment.stock.monitoring.SqlStatementCounter;
+import com.fyber.junior.developer.assignment.stock.monitoring.SqlStatementMetricsInterceptor;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the read requests of the portfolio resource off the tomcat worker threads, on a bounded pool.
+ * The pool is as large as the database connection pool, and the requests that wait for a thread are held
+ * in a bounded queue. A request that finds the queue full is rejected right away with a 503 and counted
+ * by "portfolio.async.rejected", instead of holding a tomcat thread until it times out.
+ * With "portfolio.async.enabled" set to false the requests are run on the calling thread.
+ */
+@Component
+public class AsyncRequestExecutor {
+
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    @Autowired
+    public AsyncRequestExecutor(MeterRegistry meterRegistry,
+                                @Value("${portfolio.async.enabled:true}") boolean enabled,
+                                @Value("${portfolio.async.threads:10}") int threads,
+                                @Value("${portfolio.async.queue-capacity:200}") int queueCapacity) {
+        this.enabled = enabled;
+
+        //without a queue a request is handed to an idle thread or rejected
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "portfolio-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.rejected = Counter.builder("portfolio.async.rejected")
+                .description("Requests rejected because the async request pool was saturated")
+                .register(meterRegistry);
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "portfolio.async");
+    }
+
+    /**
+     * This supply method is responsible to run the given request on the pool.
+     * @return a future of the request's result, an exception thrown by the request completes the future exceptionally
+     * @throws ServiceUnavailableException when the pool and its queue are full
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> request) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(request.get());
+        }
+
+        //the statement count is handed to the request, as the interceptor reads it on another thread
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        HttpServletRequest servletRequest = requestAttributes instanceof ServletRequestAttributes ?
+                ((ServletRequestAttributes) requestAttributes).getRequest() : null;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                SqlStatementCounter.reset();
+                T value = null;
+                Throwable failure = null;
+                try {
+                    value = request.get();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                if (servletRequest != null) {
+                    servletRequest.setAttribute(SqlStatementMetricsInterceptor.STATEMENTS_ATTRIBUTE,
+                            SqlStatementCounter.count());
+                }
+
+                //completed with the thrown exception itself and not a CompletionException, so it is mapped by its status
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+            return result;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("The server is busy, please try again later");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
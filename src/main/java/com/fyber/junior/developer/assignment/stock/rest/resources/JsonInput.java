@@ -0,0 +1,70 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Aids for the request bodies read as a stream of json values.
+ */
+final class JsonInput {
+
+    private JsonInput() {
+    }
+
+    /**
+     * @return true for a failure to map the input to values, and for input that is not valid json,
+     * which the reader wraps in a plain runtime exception
+     */
+    static boolean isMalformedInput(RuntimeException e) {
+        return e instanceof RuntimeJsonMappingException || e.getCause() instanceof JsonProcessingException;
+    }
+
+    /**
+     * Reads the values of the input until it ends or fails to be read. The failure ends the values instead of
+     * being thrown, so the values read before it are still consumed, and it is kept to be handled after them.
+     */
+    static final class UntilBroken<T> implements Iterator<T> {
+        private final Iterator<T> input;
+        private T next;
+        private boolean hasNext;
+        private RuntimeException failure;
+
+        UntilBroken(Iterator<T> input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!hasNext && failure == null) {
+                try {
+                    if (input.hasNext()) {
+                        next = input.next();
+                        hasNext = true;
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = false;
+            return next;
+        }
+
+        /**
+         * @return the failure that ended the values, or null when the input ended
+         */
+        RuntimeException getFailure() {
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceTick;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.TickIngestionResult;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.TickIngestionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping(value = "/api/market")
+public class MarketDataResource
+{
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private LivePriceBook livePriceBook;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    public void setLivePriceBook(LivePriceBook livePriceBook){
+        this.livePriceBook = livePriceBook;
+    }
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper){
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ingests a batch of ticks, the body is either a JSON array of ticks or NDJSON with a tick per line.
+     * The body is read as a stream, every tick is applied as soon as it was read.
+     * A malformed tick stops the batch, and is answered with the amounts of the ticks ingested before it.
+     */
+    @PostMapping(path="/ticks", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public TickIngestionResult ingestTicks(HttpServletRequest request) throws IOException {
+        ObjectReader tickReader = objectMapper.readerFor(PriceTick.class);
+        MappingIterator<PriceTick> input = request.getContentType().startsWith(APPLICATION_NDJSON_VALUE) ?
+                tickReader.readValues(objectMapper.getFactory().createParser(request.getInputStream())) :
+                tickReader.readValues(request.getInputStream());
+
+        JsonInput.UntilBroken<PriceTick> ticks = new JsonInput.UntilBroken<>(input);
+        TickIngestionResult result = livePriceBook.ingest(ticks);
+        RuntimeException failure = ticks.getFailure();
+        if (failure != null) {
+            if (!JsonInput.isMalformedInput(failure)) {
+                throw failure;
+            }
+            throw new TickIngestionException("Malformed ticks input: " + failure.getMessage(),
+                    result.getAccepted(), result.getStale(), result.getRejected());
+        }
+        return result;
+    }
+
+    @GetMapping(path="/ticks/{symbol}")
+    public List<PriceTick> getRecentTicks(@PathVariable String symbol,
+                                          @RequestParam(value = "limit", defaultValue = "100") Integer limit){
+        if (limit < 1) {
+            throw new BadArgumentException("number of ticks '" + limit + "' must be at least 1");
+        }
+        return livePriceBook.recentTicks(symbol, limit);
+    }
+}
@@ -1,44 +1,153 @@
 package com.fyber.junior.developer.assignment.stock.rest.resources;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioExportRow;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioExportService;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioImportResult;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioImportService;
 import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioValuationService;
 import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ExceptionResponse;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ImportExceptionResponse;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioImportException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping(value = "/api/portfolio")
 public class PortfolioResource
 {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private PortfolioService portfolioService;
+    private PortfolioImportService portfolioImportService;
+    private PortfolioValuationService portfolioValuationService;
+    private PortfolioExportService portfolioExportService;
+    private ObjectMapper objectMapper;
+    private AsyncRequestExecutor asyncRequestExecutor;
+    private PortfolioValueStreams portfolioValueStreams;
 
     @Autowired
     public void setPortfolioService(PortfolioService portfolioService){
         this.portfolioService = portfolioService;
     }
 
+    @Autowired
+    public void setPortfolioImportService(PortfolioImportService portfolioImportService){
+        this.portfolioImportService = portfolioImportService;
+    }
+
+    @Autowired
+    public void setPortfolioValuationService(PortfolioValuationService portfolioValuationService){
+        this.portfolioValuationService = portfolioValuationService;
+    }
+
+    @Autowired
+    public void setPortfolioExportService(PortfolioExportService portfolioExportService){
+        this.portfolioExportService = portfolioExportService;
+    }
 
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper){
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired
+    public void setAsyncRequestExecutor(AsyncRequestExecutor asyncRequestExecutor){
+        this.asyncRequestExecutor = asyncRequestExecutor;
+    }
+
+    @Autowired
+    public void setPortfolioValueStreams(PortfolioValueStreams portfolioValueStreams){
+        this.portfolioValueStreams = portfolioValueStreams;
+    }
+
+
+    //the read requests are run on the async request pool, see AsyncRequestExecutor
     @GetMapping(path="/performance/{clientId}",params = {"pastDays"})
-    public String getMostPerformingStock(@PathVariable long clientId,@RequestParam("pastDays") Integer pastDays){
-        return portfolioService.mostPerformingStock(clientId,pastDays);
+    public CompletableFuture<String> getMostPerformingStock(@PathVariable long clientId,@RequestParam("pastDays") Integer pastDays){
+        return asyncRequestExecutor.supply(() -> portfolioService.mostPerformingStock(clientId,pastDays));
+    }
+
+    @GetMapping(path="/performance/{clientId}",params = {"from", "to"})
+    public CompletableFuture<String> getMostPerformingStock(@PathVariable long clientId,
+                                         @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return asyncRequestExecutor.supply(() -> portfolioService.mostPerformingStock(clientId,from,to));
     }
 
     @GetMapping(path="/stable/{clientId}",params = {"pastDays"})
-    public String getMostStableStock(@PathVariable long clientId,@RequestParam("pastDays") Integer pastDays){
-        return portfolioService.mostStableStock(clientId,pastDays);
+    public CompletableFuture<String> getMostStableStock(@PathVariable long clientId,@RequestParam("pastDays") Integer pastDays){
+        return asyncRequestExecutor.supply(() -> portfolioService.mostStableStock(clientId,pastDays));
+    }
+
+    @GetMapping(path="/stable/{clientId}",params = {"from", "to"})
+    public CompletableFuture<String> getMostStableStock(@PathVariable long clientId,
+                                     @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        return asyncRequestExecutor.supply(() -> portfolioService.mostStableStock(clientId,from,to));
     }
 
     @GetMapping(path="/best/{clientId}")
-    public String getBestStock(@PathVariable long clientId){
-        return portfolioService.bestStock(clientId);
+    public CompletableFuture<String> getBestStock(@PathVariable long clientId){
+        return asyncRequestExecutor.supply(() -> portfolioService.bestStock(clientId));
+    }
+
+    @GetMapping(path="/best/{clientId}",params = {"top"})
+    public CompletableFuture<List<String>> getBestStocks(@PathVariable long clientId,@RequestParam("top") Integer top){
+        return asyncRequestExecutor.supply(() -> portfolioService.bestStocks(clientId,top));
     }
 
     @GetMapping(path="/value/{clientId}")
-    public double getClientPortfolioValue(@PathVariable long clientId){
-        return portfolioService.getPortfolioValue(clientId);
+    public CompletableFuture<Double> getClientPortfolioValue(@PathVariable long clientId){
+        return asyncRequestExecutor.supply(() -> portfolioService.getPortfolioValue(clientId));
+    }
+
+    @GetMapping(path="/value/{clientId}/live")
+    public Double getClientLivePortfolioValue(@PathVariable long clientId){
+        return portfolioService.getLivePortfolioValue(clientId);
+    }
+
+    /**
+     * Opens a server sent events stream of the client's live portfolio value, a "value" event is sent
+     * when the stream opens and after the client's positions or the prices of his stocks changed.
+     */
+    @GetMapping(path="/value/{clientId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamClientPortfolioValue(@PathVariable long clientId){
+        return portfolioValueStreams.subscribe(clientId);
+    }
+
+    @GetMapping(path="/value/{clientId}",params = {"date"})
+    public CompletableFuture<Double> getClientPortfolioValueAt(@PathVariable long clientId,
+                                            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date){
+        return asyncRequestExecutor.supply(() -> portfolioService.getPortfolioValueAt(clientId,date));
     }
 
     @PostMapping()
@@ -46,6 +155,174 @@ public class PortfolioResource
         return portfolioService.addNewClientPortfolio(listOfNewStocks);
     }
 
+    /**
+     * Imports many new portfolios in one request, the body is either a JSON array of portfolios
+     * or NDJSON with a portfolio per line. The body is read as a stream, and a result line
+     * with the new client's id or the rejection reason is streamed back for every portfolio.
+     * A malformed portfolio stops the import after the portfolios before it were imported, and is answered
+     * with its index, the amount of imported portfolios and the last new client's id. Unless result lines were
+     * already sent, the answer is a 406 holding only the error, otherwise the error is the last line of the stream.
+     */
+    @PostMapping(path="/import", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public void importPortfolios(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ObjectReader portfolioReader = objectMapper.readerFor(new TypeReference<List<Stock>>(){});
+
+        //a JSON array is unwrapped by the reader, NDJSON is read as a sequence of root level portfolios
+        MappingIterator<List<Stock>> portfolios = request.getContentType().startsWith(APPLICATION_NDJSON_VALUE) ?
+                portfolioReader.readValues(objectMapper.getFactory().createParser(request.getInputStream())) :
+                portfolioReader.readValues(request.getInputStream());
+
+        OutputStream responseBody = ndjsonResponse(response);
+        ImportProgress progress = new ImportProgress(ndjsonWriter(responseBody));
+        try {
+            portfolioImportService.importPortfolios(portfolios, progress);
+        } catch (RuntimeException e) {
+            if (!JsonInput.isMalformedInput(e)) {
+                throw e;
+            }
+            PortfolioImportException error = new PortfolioImportException("Malformed portfolios input: " +
+                    e.getMessage(), progress.reported, progress.imported, progress.lastClientId);
+            malformedStream(response, responseBody, error,
+                    new ImportExceptionResponse(new Date(), error.getMessage(), description(request), error));
+        }
+        responseBody.flush();
+    }
+
+    /**
+     * Values the portfolios of many clients in one request, the body is either a JSON array of client ids
+     * or NDJSON with a client id per line. A result line with the client's portfolio value or the reason
+     * it could not be valued is streamed back for every client id, in the order of the body.
+     * A malformed client id stops the valuation after the client ids before it were valued, and is answered
+     * like a malformed portfolio of an import.
+     */
+    @PostMapping(path="/values", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public void valuePortfolios(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ObjectReader clientIdReader = objectMapper.readerFor(Long.class);
+        MappingIterator<Long> input = request.getContentType().startsWith(APPLICATION_NDJSON_VALUE) ?
+                clientIdReader.readValues(objectMapper.getFactory().createParser(request.getInputStream())) :
+                clientIdReader.readValues(request.getInputStream());
+
+        OutputStream responseBody = ndjsonResponse(response);
+        JsonInput.UntilBroken<Long> clientIds = new JsonInput.UntilBroken<>(input);
+        portfolioValuationService.valuePortfolios(clientIds, ndjsonWriter(responseBody));
+        RuntimeException failure = clientIds.getFailure();
+        if (failure != null) {
+            if (!JsonInput.isMalformedInput(failure)) {
+                throw failure;
+            }
+            BadArgumentException error = new BadArgumentException("Malformed client ids input: " +
+                    failure.getMessage());
+            malformedStream(response, responseBody, error,
+                    new ExceptionResponse(new Date(), error.getMessage(), description(request)));
+        }
+        responseBody.flush();
+    }
+
+    /**
+     * Values the portfolios of all of the clients, a result line is streamed back for every client
+     * in the order of the clients' ids.
+     */
+    @GetMapping(path="/values")
+    public void valueAllPortfolios(HttpServletResponse response) throws IOException {
+        OutputStream responseBody = ndjsonResponse(response);
+        portfolioValuationService.valueAllPortfolios(ndjsonWriter(responseBody));
+        responseBody.flush();
+    }
+
+    /**
+     * Exports the value, the most performing stock and the most stable stock in the past days of every client,
+     * streamed back as NDJSON or, with format=csv, as a CSV file with a header line.
+     */
+    @GetMapping(path="/export", params = {"pastDays"})
+    public void exportPortfolios(@RequestParam("pastDays") Integer pastDays,
+                                 @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                 HttpServletResponse response) throws IOException {
+        if ("csv".equals(format)) {
+            response.setContentType(TEXT_CSV_VALUE);
+            response.setHeader("Content-Disposition", "attachment; filename=\"portfolios.csv\"");
+            Writer responseBody = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+            responseBody.write(PortfolioExportRow.CSV_HEADER + "\n");
+            portfolioExportService.exportPortfolios(pastDays, row -> {
+                try {
+                    responseBody.write(row.toCsv());
+                    responseBody.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            responseBody.flush();
+        } else if ("ndjson".equals(format)) {
+            OutputStream responseBody = ndjsonResponse(response);
+            portfolioExportService.exportPortfolios(pastDays, ndjsonWriter(responseBody));
+            responseBody.flush();
+        } else {
+            throw new BadArgumentException("the export format '" + format + "' is not supported");
+        }
+    }
+
+    private static OutputStream ndjsonResponse(HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        return response.getOutputStream();
+    }
+
+    /**
+     * @return a consumer writing every result as a line of JSON to the response body
+     */
+    private <T> Consumer<T> ndjsonWriter(OutputStream responseBody) {
+        return result -> {
+            try {
+                responseBody.write(objectMapper.writeValueAsBytes(result));
+                responseBody.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * This aid method is responsible to answer the malformed input of a streamed response.
+     * Unless result lines were already sent, they are discarded and the error is thrown, to be answered alone
+     * with its status. Otherwise the status was sent already, and the error is written as the last line of the stream.
+     * @param errorLine the error as it is answered by the exception handler
+     */
+    private void malformedStream(HttpServletResponse response, OutputStream responseBody, BadArgumentException error,
+                                 ExceptionResponse errorLine) throws IOException {
+        if (!response.isCommitted()) {
+            response.resetBuffer();
+            throw error;
+        }
+        ndjsonWriter(responseBody).accept(errorLine);
+    }
+
+    private static String description(HttpServletRequest request) {
+        return new ServletWebRequest(request).getDescription(true);
+    }
+
+    /**
+     * Writes the results of an import and counts them, so a broken input can be answered with
+     * what was imported before it.
+     */
+    private static class ImportProgress implements Consumer<PortfolioImportResult> {
+        private final Consumer<PortfolioImportResult> resultWriter;
+        private long reported;
+        private long imported;
+        private Long lastClientId;
+
+        ImportProgress(Consumer<PortfolioImportResult> resultWriter) {
+            this.resultWriter = resultWriter;
+        }
+
+        @Override
+        public void accept(PortfolioImportResult result) {
+            resultWriter.accept(result);
+            reported++;
+            if (result.getClientId() != null) {
+                imported++;
+                lastClientId = result.getClientId();
+            }
+        }
+    }
+
     @PutMapping(path="/replace/{clientId}")
     public void replacePortfolio(@Valid @RequestBody List<Stock> listOfNewStocks, @PathVariable long clientId){
         portfolioService.replaceClientPortfolio(clientId,listOfNewStocks);
@@ -0,0 +1,197 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fyber.junior.developer.assignment.stock.business.services.LivePortfolioValues;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioValueListener;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the open server sent event streams of the clients' live portfolio values, up to
+ * "portfolio.streams.max-subscribers" streams. A subscription beyond that is rejected with a 503.
+ * A stream is sent the client's value when it opens, and again only after the value changed, see
+ * {@link LivePortfolioValues}. The changes are coalesced: a stream is sent at most one update every
+ * "portfolio.streams.min-interval-ms", holding the value at the time it is sent, and a stream that is still
+ * being written to gets a single update once the write is done, however many changes came meanwhile.
+ * The updates are written by a small pool of "portfolio.streams.threads" threads, as the open streams hold no thread.
+ * "portfolio.streams" is the amount of open streams and "portfolio.streams.updates" counts the updates sent.
+ */
+@Component
+public class PortfolioValueStreams implements PortfolioValueListener {
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioValueStreams.class);
+
+    private final PortfolioService portfolioService;
+    private final LivePortfolioValues livePortfolioValues;
+    private final int maxSubscribers;
+    private final long minIntervalMillis;
+    private final long timeoutMillis;
+    private final ConcurrentHashMap<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ScheduledThreadPoolExecutor executor;
+    private final Counter updates;
+
+    @Autowired
+    public PortfolioValueStreams(PortfolioService portfolioService, LivePortfolioValues livePortfolioValues,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${portfolio.streams.max-subscribers:20000}") int maxSubscribers,
+                                 @Value("${portfolio.streams.min-interval-ms:250}") long minIntervalMillis,
+                                 @Value("${portfolio.streams.timeout-ms:1800000}") long timeoutMillis,
+                                 @Value("${portfolio.streams.threads:4}") int threads) {
+        this.portfolioService = portfolioService;
+        this.livePortfolioValues = livePortfolioValues;
+        this.maxSubscribers = maxSubscribers;
+        this.minIntervalMillis = minIntervalMillis;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.updates = Counter.builder("portfolio.streams.updates")
+                .description("Portfolio value updates sent to the open streams")
+                .register(meterRegistry);
+        Gauge.builder("portfolio.streams", subscribers, AtomicInteger::get)
+                .description("Open streams of portfolio values")
+                .register(meterRegistry);
+        livePortfolioValues.addListener(this);
+    }
+
+    /**
+     * This streams method is responsible to open a stream of the client's live portfolio value.
+     * The client is validated and valued before the stream opens, so an unknown client is answered with a 404.
+     * @throws ServiceUnavailableException when there are too many open streams
+     */
+    public SseEmitter subscribe(long clientId) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new ServiceUnavailableException("Too many open streams, please try again later");
+        }
+
+        Subscription subscription = new Subscription(clientId, new SseEmitter(timeoutMillis));
+        subscriptions.compute(clientId, (id, clientSubscriptions) -> {
+
+            //the first stream of the client starts watching it, under the entry's lock so it races no unwatch
+            if (clientSubscriptions == null) {
+                clientSubscriptions = ConcurrentHashMap.newKeySet();
+                livePortfolioValues.watch(clientId);
+            }
+            clientSubscriptions.add(subscription);
+            return clientSubscriptions;
+        });
+        try {
+            subscription.send(portfolioService.getLivePortfolioValue(clientId));
+        } catch (RuntimeException e) {
+            unsubscribe(subscription);
+            throw e;
+        }
+
+        SseEmitter emitter = subscription.emitter;
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+        return emitter;
+    }
+
+    @Override
+    public void valueChanged(long clientId) {
+        Set<Subscription> clientSubscriptions = subscriptions.get(clientId);
+        if (clientSubscriptions != null) {
+            clientSubscriptions.forEach(Subscription::schedule);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        Set<Subscription> clientSubscriptions = subscriptions.get(subscription.clientId);
+        if (clientSubscriptions != null && clientSubscriptions.remove(subscription)) {
+            subscribers.decrementAndGet();
+            unwatchIfUnsubscribed(subscription.clientId);
+        }
+    }
+
+    private void unwatchIfUnsubscribed(long clientId) {
+        subscriptions.computeIfPresent(clientId, (id, clientSubscriptions) -> {
+            if (clientSubscriptions.isEmpty()) {
+                livePortfolioValues.unwatch(clientId);
+                return null;
+            }
+            return clientSubscriptions;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A single open stream, with at most one update waiting to be sent.
+     */
+    private final class Subscription {
+        private final long clientId;
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastSentMillis;
+        private volatile double lastSentValue = Double.NaN;
+
+        private Subscription(long clientId, SseEmitter emitter) {
+            this.clientId = clientId;
+            this.emitter = emitter;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                long delayMillis = Math.max(0, lastSentMillis + minIntervalMillis - System.currentTimeMillis());
+                executor.schedule(this::sendLatest, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void sendLatest() {
+
+            //a change from now on schedules another update
+            scheduled.set(false);
+            try {
+                double value = portfolioService.getLivePortfolioValue(clientId);
+                if (Double.compare(value, lastSentValue) != 0) {
+                    send(value);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Closing the portfolio value stream of client {}: {}", clientId, e.getMessage());
+                unsubscribe(this);
+                emitter.complete();
+            }
+        }
+
+        void send(double value) {
+            try {
+                emitter.send(SseEmitter.event().name("value").data(value));
+                lastSentValue = value;
+                lastSentMillis = System.currentTimeMillis();
+                updates.increment();
+            } catch (IOException e) {
+
+                //the stream was closed by the other side
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+CREATE TABLE IF NOT EXISTS CLIENTS (
+	CLIENT_ID BIGINT PRIMARY KEY,
+	VERSION BIGINT DEFAULT 0 NOT NULL
+);
+
+
+CREATE TABLE IF NOT EXISTS STOCKS (
+	STOCK_ID BIGINT PRIMARY KEY,
+	STOCK_SYMBOL VARCHAR(5) NOT NULL,
+	STOCK_AMOUNT INT,
+	CLIENT_ID BIGINT REFERENCES CLIENTS(CLIENT_ID)
+);
+
+
+-- Adding the optimistic locking version to clients created by an older version of the app
+ALTER TABLE CLIENTS ADD COLUMN IF NOT EXISTS VERSION BIGINT DEFAULT 0 NOT NULL;
+
+
+-- Ids are allocated from pooled-lo sequences in blocks of 50, the increment must match the entities' allocationSize
+CREATE SEQUENCE IF NOT EXISTS CLIENTS_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS STOCKS_SEQ START WITH 1 INCREMENT BY 50;
+
+
+-- Migrating ids generated by the former SERIAL/IDENTITY columns: the next block starts after the highest existing id,
+-- and a sequence is never moved backwards, so it is safe while other nodes are running
+SELECT setval('CLIENTS_SEQ', GREATEST((SELECT COALESCE(MAX(CLIENT_ID), 0) + 1 FROM CLIENTS),
+	(SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM CLIENTS_SEQ)), false);
+SELECT setval('STOCKS_SEQ', GREATEST((SELECT COALESCE(MAX(STOCK_ID), 0) + 1 FROM STOCKS),
+	(SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM STOCKS_SEQ)), false);
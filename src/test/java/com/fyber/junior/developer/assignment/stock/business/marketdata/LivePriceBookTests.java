@@ -0,0 +1,78 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts which ticks move the latest price of a stock, and how the ticks that do not are reported.
+ */
+public class LivePriceBookTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LivePriceBook livePriceBook;
+
+	@Before
+	public void createBook() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		Files.write(stocksFile, "AAPL,100,8.1.2018\n".getBytes(StandardCharsets.UTF_8));
+		Path supportedStocksFile = folder.newFile("supportedStocks.txt").toPath();
+		Files.write(supportedStocksFile, "AAPL".getBytes(StandardCharsets.UTF_8));
+
+		livePriceBook = new LivePriceBook(new SupportedStocksStore(supportedStocksFile.toString()),
+				new PriceHistoryStore(stocksFile.toString(), 8, 0), new SimpleMeterRegistry(), 16, 5000);
+	}
+
+	@Test
+	public void tickFromTheFutureIsRejected() {
+		long now = System.currentTimeMillis();
+
+		//microseconds sent instead of milliseconds
+		assertFalse(livePriceBook.accept(new PriceTick("AAPL", 500, now * 1000)));
+		assertTrue(Double.isNaN(livePriceBook.latestPrice("AAPL")));
+
+		TickIngestionResult result = livePriceBook.ingest(Arrays.asList(
+				new PriceTick("AAPL", 500, now + 60_000),
+				new PriceTick("AAPL", 110, now)).iterator());
+		assertEquals(1, result.getAccepted());
+		assertEquals(1, result.getRejected());
+		assertEquals("the timestamp '" + (now + 60_000) + "' of stock 'AAPL' is in the future", result.getError());
+		assertEquals(110, livePriceBook.latestPrice("AAPL"), 0);
+
+		//a tick within the skew is accepted
+		assertTrue(livePriceBook.accept(new PriceTick("AAPL", 120, now + 1000)));
+		assertEquals(120, livePriceBook.latestPrice("AAPL"), 0);
+	}
+
+	@Test
+	public void staleTicksAreCountedApart() {
+		long now = System.currentTimeMillis();
+		TickIngestionResult result = livePriceBook.ingest(Arrays.asList(
+				new PriceTick("AAPL", 110, now),
+				new PriceTick("AAPL", 90, now - 1000),
+				new PriceTick("AAPL", 80, noonOf(8))).iterator());
+		assertEquals(1, result.getAccepted());
+		assertEquals(2, result.getStale());
+		assertEquals(0, result.getRejected());
+		assertEquals(110, livePriceBook.latestPrice("AAPL"), 0);
+	}
+
+	private static long noonOf(int dayOfJanuary2018) {
+		return LocalDate.of(2018, 1, dayOfJanuary2018).atTime(12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+}
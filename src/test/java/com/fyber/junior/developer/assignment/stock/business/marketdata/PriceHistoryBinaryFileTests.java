@@ -0,0 +1,99 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PriceHistoryBinaryFileTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void mappedFileMatchesTheCsvFile() throws Exception {
+		Path csvFile = folder.newFile("stocks.csv").toPath();
+		Files.write(csvFile, ("AAPL,195.35,8.1.2018\n" +
+				"MSFT,101.10,7.1.2018\n" +
+				"AAPL,194.98,7.1.2018\n" +
+				"MSFT,102.20,8.1.2018\n" +
+				"FB,181.42,8.1.2018\n").getBytes(StandardCharsets.UTF_8));
+		Path binaryFile = folder.getRoot().toPath().resolve("stocks.bin");
+
+		PriceHistory parsed = PriceHistoryCsvParser.parse(csvFile, 2);
+		PriceHistoryBinaryFile.write(parsed, binaryFile);
+		PriceHistory mapped = new PriceHistoryStore(binaryFile.toString(), 2, 0).getPriceHistory();
+
+		assertTrue(PriceHistoryBinaryFile.isBinaryFile(binaryFile));
+		assertEquals(parsed.symbolCount(), mapped.symbolCount());
+		for (int i = 0; i < parsed.symbolCount(); i++) {
+			int mappedIndex = mapped.indexOf(parsed.symbol(i));
+			assertEquals(parsed.historyLength(i), mapped.historyLength(mappedIndex));
+			for (int daysBack = 0; daysBack < parsed.historyLength(i); daysBack++) {
+				assertEquals(parsed.close(i, daysBack), mapped.close(mappedIndex, daysBack), 0.0);
+				assertEquals(parsed.epochDay(i, daysBack), mapped.epochDay(mappedIndex, daysBack));
+			}
+		}
+		assertEquals(1.1, mapped.windowStats().delta(mapped.indexOf("MSFT"), 2), 1e-9);
+		assertEquals("AAPL", mapped.symbol(mapped.symbolIndexByLatestCloseRank(0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTruncatedFile() throws Exception {
+		Path csvFile = folder.newFile("stocks.csv").toPath();
+		Files.write(csvFile, "AAPL,195.35,8.1.2018\n".getBytes(StandardCharsets.UTF_8));
+		Path binaryFile = folder.getRoot().toPath().resolve("stocks.bin");
+		PriceHistoryBinaryFile.write(PriceHistoryCsvParser.parse(csvFile, 0), binaryFile);
+
+		byte[] content = Files.readAllBytes(binaryFile);
+		Files.write(binaryFile, Arrays.copyOf(content, content.length - 4));
+		PriceHistoryBinaryFile.map(binaryFile, 0);
+	}
+
+	@Test
+	public void rejectsDaysOutOfOrder() throws Exception {
+		Path binaryFile = write("AAPL,195.35,8.1.2018\nAAPL,194.98,7.1.2018\n");
+
+		//swapping the two epoch days, the last column of the file
+		byte[] content = Files.readAllBytes(binaryFile);
+		byte[] latestDay = Arrays.copyOfRange(content, content.length - 4, content.length);
+		System.arraycopy(content, content.length - 8, content, content.length - 4, 4);
+		System.arraycopy(latestDay, 0, content, content.length - 8, 4);
+		Files.write(binaryFile, content);
+		assertRejected(binaryFile, "the days of symbol 'AAPL' are not in increasing order in the binary price history");
+	}
+
+	@Test
+	public void rejectsRepeatingSymbol() throws Exception {
+		Path binaryFile = write("AAPL,195.35,8.1.2018\nMSFT,101.10,8.1.2018\n");
+
+		String content = new String(Files.readAllBytes(binaryFile), StandardCharsets.ISO_8859_1);
+		Files.write(binaryFile, content.replace("MSFT", "AAPL").getBytes(StandardCharsets.ISO_8859_1));
+		assertRejected(binaryFile, "symbol 'AAPL' appears twice in the binary price history");
+	}
+
+	private Path write(String csv) throws Exception {
+		Path csvFile = folder.newFile("stocks.csv").toPath();
+		Files.write(csvFile, csv.getBytes(StandardCharsets.UTF_8));
+		Path binaryFile = folder.getRoot().toPath().resolve("stocks.bin");
+		PriceHistoryBinaryFile.write(PriceHistoryCsvParser.parse(csvFile, 0), binaryFile);
+		return binaryFile;
+	}
+
+	private static void assertRejected(Path binaryFile, String expectedMessage) throws Exception {
+		try {
+			PriceHistoryBinaryFile.map(binaryFile, 0);
+			fail("expected the file to be rejected");
+		} catch (IllegalArgumentException e) {
+			assertEquals(expectedMessage, e.getMessage());
+		}
+	}
+}
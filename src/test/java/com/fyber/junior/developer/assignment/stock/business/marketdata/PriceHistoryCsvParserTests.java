@@ -0,0 +1,117 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriceHistoryCsvParserTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void parsesInterleavedRowsOrderedByDate() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		Files.write(stocksFile, ("AAPL,195.35,8.1.2018\n" +
+				"MSFT,101.10,7.1.2018\n" +
+				"AAPL,194.98,7.1.2018\n" +
+				"MSFT,102.20,8.1.2018\n").getBytes(StandardCharsets.UTF_8));
+
+		PriceHistory priceHistory = PriceHistoryCsvParser.parse(stocksFile, 8);
+
+		assertEquals(2, priceHistory.symbolCount());
+		int aapl = priceHistory.indexOf("AAPL");
+		assertEquals(2, priceHistory.historyLength(aapl));
+		assertEquals(195.35, priceHistory.latestClose(aapl), 0.0);
+		assertEquals(194.98, priceHistory.close(aapl, 1), 0.0);
+		assertEquals(LocalDate.of(2018, 1, 8).toEpochDay(), priceHistory.epochDay(aapl, 0));
+		assertEquals(102.20, priceHistory.latestClose(priceHistory.indexOf("MSFT")), 0.0);
+		assertEquals(-1, priceHistory.indexOf("GOOGL"));
+		assertEquals(aapl, priceHistory.symbolIndexByLatestCloseRank(0));
+		assertEquals(priceHistory.indexOf("MSFT"), priceHistory.symbolIndexByLatestCloseRank(1));
+	}
+
+	@Test
+	public void findsClosesAroundDates() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		Files.write(stocksFile, ("AAPL,1.0,2.1.2018\n" +
+				"AAPL,2.0,3.1.2018\n" +
+				"AAPL,3.0,8.1.2018\n").getBytes(StandardCharsets.UTF_8));
+
+		PriceHistory priceHistory = PriceHistoryCsvParser.parse(stocksFile, 8);
+		int aapl = priceHistory.indexOf("AAPL");
+
+		assertEquals(1, priceHistory.daysBackOnOrBefore(aapl, epochDay(2018, 1, 5)));
+		assertEquals(0, priceHistory.daysBackOnOrBefore(aapl, epochDay(2018, 1, 8)));
+		assertEquals(-1, priceHistory.daysBackOnOrBefore(aapl, epochDay(2018, 1, 1)));
+		assertEquals(0, priceHistory.daysBackOnOrAfter(aapl, epochDay(2018, 1, 5)));
+		assertEquals(2, priceHistory.daysBackOnOrAfter(aapl, epochDay(2018, 1, 1)));
+		assertEquals(-1, priceHistory.daysBackOnOrAfter(aapl, epochDay(2018, 1, 9)));
+		assertEquals(3, priceHistory.longestHistoryLength());
+	}
+
+	@Test
+	public void parsesAnyChunkingTheSameAndCountsMalformedRows() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		Files.write(stocksFile, ("AAPL,195.35,8.1.2018\r\n" +
+				"MSFT,101.1,7.1.2018\n" +
+				"AAPL,not-a-price,6.1.2018\n" +
+				"\n" +
+				" AAPL , 194.98 , 7.1.2018 \n" +
+				"MSFT,1e2,8.1.2018\n" +
+				"MSFT,100.00,31.2.2018\n" +
+				"FB,181.42,29.2.2016").getBytes(StandardCharsets.UTF_8));
+
+		PriceHistoryCsvParser.Ingestion expected = PriceHistoryCsvParser.ingest(stocksFile, 8, ForkJoinPool.commonPool(), 1 << 20);
+		assertEquals(5, expected.getRows());
+		assertEquals(2, expected.getMalformedRows());
+		assertTrue(expected.getFirstMalformedRow().contains("not-a-price"));
+
+		for (int chunkBytes = 1; chunkBytes < 40; chunkBytes++) {
+			PriceHistory priceHistory = PriceHistoryCsvParser.ingest(stocksFile, 8, ForkJoinPool.commonPool(), chunkBytes)
+					.getPriceHistory();
+			assertEquals(3, priceHistory.symbolCount());
+			for (int i = 0; i < priceHistory.symbolCount(); i++) {
+				PriceHistory expectedHistory = expected.getPriceHistory();
+				assertEquals(expectedHistory.symbol(i), priceHistory.symbol(i));
+				assertEquals(expectedHistory.historyLength(i), priceHistory.historyLength(i));
+				for (int daysBack = 0; daysBack < priceHistory.historyLength(i); daysBack++) {
+					assertEquals(expectedHistory.close(i, daysBack), priceHistory.close(i, daysBack), 0.0);
+					assertEquals(expectedHistory.epochDay(i, daysBack), priceHistory.epochDay(i, daysBack));
+				}
+			}
+		}
+		PriceHistory priceHistory = expected.getPriceHistory();
+		assertEquals(194.98, priceHistory.close(priceHistory.indexOf("AAPL"), 1), 0.0);
+		assertEquals(100.0, priceHistory.latestClose(priceHistory.indexOf("MSFT")), 0.0);
+		assertEquals(epochDay(2016, 2, 29), priceHistory.epochDay(priceHistory.indexOf("FB"), 0));
+	}
+
+	@Test
+	public void calculatesEpochDaysLikeLocalDate() {
+		for (LocalDate date = LocalDate.of(1899, 12, 1); date.getYear() < 2101; date = date.plusDays(1)) {
+			assertEquals(date.toEpochDay(), CsvChunkParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMalformedRow() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		Files.write(stocksFile, "AAPL,not-a-price,8.1.2018\n".getBytes(StandardCharsets.UTF_8));
+
+		PriceHistoryCsvParser.parse(stocksFile, 8);
+	}
+
+	private static int epochDay(int year, int month, int day) {
+		return (int) LocalDate.of(year, month, day).toEpochDay();
+	}
+}
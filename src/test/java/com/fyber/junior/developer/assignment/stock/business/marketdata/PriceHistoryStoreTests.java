@@ -0,0 +1,46 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PriceHistoryStoreTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void reloadsModifiedFileAndKeepsSnapshotOnCorruptFile() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		write(stocksFile, "AAPL,195.35,8.1.2018\n", 1000);
+
+		PriceHistoryStore store = new PriceHistoryStore(stocksFile.toString(), 8, 0);
+		PriceHistory loaded = store.getPriceHistory();
+		assertEquals(195.35, loaded.latestClose(loaded.indexOf("AAPL")), 0.0);
+		assertFalse(store.reloadIfModified());
+
+		write(stocksFile, "AAPL,195.35,8.1.2018\nAAPL,19", 2000);
+		assertFalse(store.reloadIfModified());
+		assertSame(loaded, store.getPriceHistory());
+
+		write(stocksFile, "AAPL,196.00,9.1.2018\n", 3000);
+		assertTrue(store.reloadIfModified());
+		PriceHistory reloaded = store.getPriceHistory();
+		assertEquals(196.00, reloaded.latestClose(reloaded.indexOf("AAPL")), 0.0);
+	}
+
+	private static void write(Path file, String content, long modifiedTime) throws Exception {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedTime));
+	}
+}
@@ -0,0 +1,36 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriceWindowStatsTests {
+
+	@Test
+	public void calculatesEveryTrailingWindow() {
+		//ordered from the oldest to the latest day
+		double[][] closes = {{4.0, 8.0, 2.0, 6.0}, {10.0}};
+		int[][] epochDays = {{1, 2, 3, 4}, {4}};
+		PriceWindowStats windowStats = PriceHistory.of(new String[]{"AAPL", "MSFT"}, closes, epochDays, 3).windowStats();
+
+		assertEquals(3, windowStats.windowDays());
+		assertEquals(0.0, windowStats.delta(0, 1), 0.0);
+		assertEquals(0.0, windowStats.range(0, 1), 0.0);
+		assertEquals(4.0, windowStats.delta(0, 2), 0.0);
+		assertEquals(-2.0, windowStats.delta(0, 3), 0.0);
+		assertEquals(6.0, windowStats.range(0, 3), 0.0);
+		assertEquals(2.0, windowStats.min(0, 3), 0.0);
+		assertEquals(8.0, windowStats.max(0, 3), 0.0);
+		assertEquals(Math.sqrt(56.0 / 9), windowStats.standardDeviation(0, 3), 1e-12);
+
+		//windows longer than the history of the symbol
+		assertEquals(0.0, windowStats.range(1, 1), 0.0);
+		assertTrue(Double.isNaN(windowStats.range(1, 2)));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectsUnsupportedWindow() {
+		PriceHistory.of(new String[]{"AAPL"}, new double[][]{{1.0}}, new int[][]{{1}}, 3).windowStats().delta(0, 4);
+	}
+}
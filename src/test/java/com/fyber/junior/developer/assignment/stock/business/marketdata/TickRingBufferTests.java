@@ -0,0 +1,52 @@
+package com.fyber.junior.developer.assignment.stock.business.marketdata;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TickRingBufferTests {
+
+	@Test
+	public void keepsTheNewestTicksOnceFull() {
+		TickRingBuffer ticks = new TickRingBuffer(3);
+		for (int i = 1; i <= 6; i++) {
+			ticks.add(new PriceTick("AMZN", i, i));
+		}
+
+		//rounded up to 4 slots, the newest first
+		List<PriceTick> recent = ticks.recent(10);
+		assertEquals(4, recent.size());
+		assertEquals(6, recent.get(0).getTimestamp());
+		assertEquals(3, recent.get(3).getTimestamp());
+		assertEquals(2, ticks.recent(2).size());
+	}
+
+	@Test
+	public void concurrentWritersLoseNoTick() throws InterruptedException {
+		TickRingBuffer ticks = new TickRingBuffer(4096);
+		List<Thread> writers = new ArrayList<>();
+		for (int writer = 0; writer < 4; writer++) {
+			int firstTimestamp = writer * 1000;
+			writers.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					ticks.add(new PriceTick("AMZN", 1.0, firstTimestamp + i));
+				}
+			}));
+		}
+		writers.forEach(Thread::start);
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		Set<Long> timestamps = new HashSet<>();
+		ticks.recent(4096).forEach(tick -> timestamps.add(tick.getTimestamp()));
+		assertEquals(4000, timestamps.size());
+		assertTrue(timestamps.contains(3999L));
+	}
+}
@@ -0,0 +1,81 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ClientWriteGuardTests {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ClientWriteGuard clientWriteGuard = new ClientWriteGuard(meterRegistry, 64, 3);
+
+	@Test
+	public void retriesAWriteThatLostToAConcurrentOne() {
+		AtomicInteger attempts = new AtomicInteger();
+		String result = clientWriteGuard.write(1, () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new ObjectOptimisticLockingFailureException("Client", 1L);
+			}
+			return "written";
+		});
+
+		assertEquals("written", result);
+		assertEquals(2.0, conflicts("retried"), 0.0);
+	}
+
+	@Test
+	public void failsAfterTheLastAttempt() {
+		try {
+			clientWriteGuard.write(1, () -> {
+				throw new ObjectOptimisticLockingFailureException("Client", 1L);
+			});
+			fail("A write that always lost did not fail");
+		} catch (ConflictException e) {
+			assertEquals(2.0, conflicts("retried"), 0.0);
+			assertEquals(1.0, conflicts("failed"), 0.0);
+		}
+	}
+
+	@Test
+	public void serializesTheWritesOfAClient() throws InterruptedException {
+		int[] unsafeCounter = new int[1];
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(() -> {
+				for (int write = 0; write < 10000; write++) {
+					clientWriteGuard.write(7, () -> unsafeCounter[0]++);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, unsafeCounter[0]);
+	}
+
+	@Test
+	public void spreadsSequentialClientsOverTheStripes() {
+		int[] clientsPerStripe = new int[64];
+		for (long clientId = 1; clientId <= 6400; clientId++) {
+			clientsPerStripe[clientWriteGuard.stripe(clientId)]++;
+		}
+		for (int clients : clientsPerStripe) {
+			assertEquals(100, clients, 30);
+		}
+	}
+
+	private double conflicts(String outcome) {
+		return meterRegistry.get("portfolio.write.conflicts").tag("outcome", outcome).counter().count();
+	}
+}
@@ -0,0 +1,92 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceTick;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocksStore;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that loading a price history replaces the ticks of the days it closed, and revalues
+ * the tracked clients right away.
+ */
+public class LivePortfolioValuesReloadTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void reloadDropsTheTicksOfTheClosedDaysAndRevaluesTheClients() throws Exception {
+		Path stocksFile = folder.newFile("stocks.csv").toPath();
+		write(stocksFile, "AAPL,100,8.1.2018\n", 1000);
+		Path supportedStocksFile = folder.newFile("supportedStocks.txt").toPath();
+		write(supportedStocksFile, "AAPL", 1000);
+
+		PriceHistoryStore priceHistoryStore = new PriceHistoryStore(stocksFile.toString(), 8, 0);
+		LivePriceBook livePriceBook = new LivePriceBook(new SupportedStocksStore(supportedStocksFile.toString()),
+				priceHistoryStore, new SimpleMeterRegistry(), 16, 5000);
+		LivePortfolioValues livePortfolioValues = new LivePortfolioValues(livePriceBook, priceHistoryStore,
+				new SimpleMeterRegistry(), 100);
+		List<Long> changedClients = new ArrayList<>();
+		livePortfolioValues.addListener(changedClients::add);
+		livePortfolioValues.watch(1);
+
+		AtomicInteger loads = new AtomicInteger();
+		List<StockPosition> positions = Collections.singletonList(new StockPosition(1, "AAPL", 2));
+		assertEquals(200, livePortfolioValues.getValue(1, () -> {
+			loads.incrementAndGet();
+			return positions;
+		}), 1e-9);
+
+		assertTrue(livePriceBook.accept(new PriceTick("AAPL", 110, noonOf(9))));
+		assertEquals(220, livePortfolioValues.getValue(1, () -> positions), 1e-9);
+
+
+		//the new history closes the day of the tick
+		changedClients.clear();
+		write(stocksFile, "AAPL,120,9.1.2018\nAAPL,100,8.1.2018\n", 2000);
+		assertTrue(priceHistoryStore.reloadIfModified());
+		assertTrue(Double.isNaN(livePriceBook.latestPrice("AAPL")));
+		assertEquals(Collections.singletonList(1L), changedClients);
+		assertEquals(240, livePortfolioValues.getValue(1, () -> {
+			loads.incrementAndGet();
+			return positions;
+		}), 1e-9);
+		assertEquals(2, loads.get());
+
+		//a tick of a closed day arriving later does not change the price either
+		livePriceBook.accept(new PriceTick("AAPL", 90, noonOf(9)));
+		assertTrue(Double.isNaN(livePriceBook.latestPrice("AAPL")));
+		assertFalse(livePriceBook.recentTicks("AAPL", 16).isEmpty());
+		livePriceBook.accept(new PriceTick("AAPL", 130, noonOf(10)));
+		assertEquals(260, livePortfolioValues.getValue(1, () -> positions), 1e-9);
+	}
+
+	private static long noonOf(int dayOfJanuary2018) {
+		return LocalDate.of(2018, 1, dayOfJanuary2018).atTime(12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	private static void write(Path file, String content, long modifiedTime) throws Exception {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedTime));
+	}
+}
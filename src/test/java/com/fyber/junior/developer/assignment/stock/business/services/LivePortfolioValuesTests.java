@@ -0,0 +1,109 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceTick;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.monitoring.SqlStatementCounter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Asserts that the live value of a tracked client follows the ticks of his stocks without going to the database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:querycount")
+public class LivePortfolioValuesTests {
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private LivePriceBook livePriceBook;
+
+	@Autowired
+	private PriceHistoryStore priceHistoryStore;
+
+	private long clientId;
+
+	@Before
+	public void createClient() {
+		List<Stock> stocks = new ArrayList<>();
+		stocks.add(stock("AMZN", 2));
+		stocks.add(stock("FB", 3));
+		clientId = portfolioService.addNewClientPortfolio(stocks);
+	}
+
+	@Test
+	public void ticksChangeTheValueOfTheHolders() {
+		double value = portfolioService.getLivePortfolioValue(clientId);
+		assertEquals(2 * price("AMZN") + 3 * price("FB"), value, 1e-6);
+
+		long now = System.currentTimeMillis();
+		livePriceBook.accept(new PriceTick("AMZN", price("AMZN") + 10, now));
+		livePriceBook.accept(new PriceTick("FB", price("FB") - 1, now));
+
+		//an older tick does not change the latest price
+		livePriceBook.accept(new PriceTick("FB", 1, now - 1000));
+
+		SqlStatementCounter.reset();
+		assertEquals(2 * price("AMZN") + 3 * price("FB"), portfolioService.getLivePortfolioValue(clientId), 1e-6);
+		assertEquals(0, SqlStatementCounter.count());
+
+		//the client is valued again with his new amounts
+		List<Stock> stocksToUpdate = new ArrayList<>();
+		stocksToUpdate.add(stock("FB", 1));
+		portfolioService.updateClientPortfolio(clientId, stocksToUpdate);
+		assertEquals(2 * price("AMZN") + price("FB"), portfolioService.getLivePortfolioValue(clientId), 1e-6);
+	}
+
+	@Test
+	public void concurrentTicksLeaveTheValueOfTheLatestPrices() throws InterruptedException {
+		portfolioService.getLivePortfolioValue(clientId);
+
+		long firstTimestamp = System.currentTimeMillis();
+		List<Thread> feeds = new ArrayList<>();
+		for (String symbol : new String[]{"AMZN", "FB"}) {
+			for (int feed = 0; feed < 2; feed++) {
+				feeds.add(new Thread(() -> {
+					for (int i = 0; i < 10000; i++) {
+						livePriceBook.accept(new PriceTick(symbol, 100 + (i % 50), firstTimestamp + i));
+					}
+				}));
+			}
+		}
+		feeds.forEach(Thread::start);
+		for (Thread feed : feeds) {
+			feed.join();
+		}
+
+		assertFalse(Double.isNaN(price("AMZN")));
+		assertEquals(2 * price("AMZN") + 3 * price("FB"), portfolioService.getLivePortfolioValue(clientId), 1e-6);
+	}
+
+	private double price(String symbol) {
+		double price = livePriceBook.latestPrice(symbol);
+		if (Double.isNaN(price)) {
+			PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+			price = priceHistory.latestClose(priceHistory.indexOf(symbol));
+		}
+		return price;
+	}
+
+	private static Stock stock(String symbol, int amount) {
+		Stock stock = new Stock(symbol);
+		stock.setStockAmount(amount);
+		return stock;
+	}
+}
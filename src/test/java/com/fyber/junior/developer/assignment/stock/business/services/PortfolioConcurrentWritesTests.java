@@ -0,0 +1,114 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.model.repository.ClientRepository;
+import com.fyber.junior.developer.assignment.stock.model.repository.StockRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Asserts that concurrent writes of the same client are all applied one after the other, and that a write
+ * losing to a write the in process lock does not see, like one of another app instance, is detected.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:querycount")
+public class PortfolioConcurrentWritesTests {
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private StockRepository stockRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private long clientId;
+
+	@Before
+	public void createClient() {
+		clientId = portfolioService.addNewClientPortfolio(portfolio("AMZN", 1));
+	}
+
+	@Test
+	public void concurrentWritesOfAClientAreAllApplied() throws InterruptedException {
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			int thread = i;
+			threads.add(new Thread(() -> {
+				try {
+					for (int write = 0; write < 10; write++) {
+						portfolioService.replaceClientPortfolio(clientId, portfolio("AMZN", 1 + thread));
+						portfolioService.updateClientPortfolio(clientId, portfolio("AMZN", 10 + thread));
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue(failures.toString(), failures.isEmpty());
+		assertEquals(80, clientRepository.findById(clientId).get().getVersion());
+		assertEquals(1, stockRepository.findPositionsByClientId(clientId).size());
+	}
+
+	@Test
+	public void aWriteThatLostIsDetected() {
+		TransactionTemplate write = new TransactionTemplate(transactionManager);
+		TransactionTemplate otherWrite = new TransactionTemplate(transactionManager);
+		otherWrite.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		try {
+			write.execute(status -> {
+				clientRepository.findForWriteByClientId(clientId);
+
+				//another instance writes the client and commits first
+				otherWrite.execute(otherStatus -> entityManager
+						.createQuery("UPDATE Client c SET c.version = c.version + 1 WHERE c.clientId = :clientId")
+						.setParameter("clientId", clientId)
+						.executeUpdate());
+				return null;
+			});
+			fail("A write that lost to another one was committed");
+		} catch (OptimisticLockingFailureException e) {
+			assertEquals(1, clientRepository.findById(clientId).get().getVersion());
+		}
+	}
+
+	private static List<Stock> portfolio(String symbol, int amount) {
+		Stock stock = new Stock(symbol);
+		stock.setStockAmount(amount);
+		List<Stock> stocks = new ArrayList<>();
+		stocks.add(stock);
+		return stocks;
+	}
+}
@@ -0,0 +1,73 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that the whole book export reports every client once, in order, with the same analytics
+ * as the single client queries.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:querycount")
+public class PortfolioExportServiceTests {
+
+	private static final String[] SYMBOLS = {"AAPL", "AMZN", "BIDU", "CSCO", "EBAY", "FB", "FBEN", "GOOGL",
+			"INTC", "MSFT", "NFLX", "NVDA", "PEP", "PYPL"};
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private PortfolioExportService portfolioExportService;
+
+	@Test
+	public void exportsEveryClientLikeTheSingleClientQueries() {
+		List<List<Stock>> portfolios = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			portfolios.add(portfolio(i));
+		}
+		List<Long> clientIds = portfolioService.addNewClientPortfolios(portfolios);
+
+		List<PortfolioExportRow> rows = new ArrayList<>();
+		portfolioExportService.exportPortfolios(5, rows::add);
+
+		for (int i = 1; i < rows.size(); i++) {
+			assertTrue(rows.get(i - 1).getClientId() < rows.get(i).getClientId());
+		}
+		List<PortfolioExportRow> exportedClients = new ArrayList<>();
+		for (PortfolioExportRow row : rows) {
+			if (clientIds.contains(row.getClientId())) {
+				exportedClients.add(row);
+			}
+		}
+		assertEquals(clientIds.size(), exportedClients.size());
+
+		for (PortfolioExportRow row : exportedClients) {
+			assertEquals(portfolioService.getPortfolioValue(row.getClientId()), row.getValue(), 1e-9);
+			assertEquals(portfolioService.mostStableStock(row.getClientId(), 5), row.getMostStableStock());
+			if (row.getMostPerformingStock() != null) {
+				assertEquals(portfolioService.mostPerformingStock(row.getClientId(), 5), row.getMostPerformingStock());
+			}
+		}
+	}
+
+	private static List<Stock> portfolio(int client) {
+		List<Stock> stocks = new ArrayList<>();
+		for (int i = 0; i <= client % 5; i++) {
+			Stock stock = new Stock(SYMBOLS[(client + i) % SYMBOLS.length]);
+			stock.setStockAmount(1 + i);
+			stocks.add(stock);
+		}
+		return stocks;
+	}
+}
@@ -0,0 +1,114 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.monitoring.SqlStatementCounter;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Asserts that every service operation issues a fixed number of SQL statements, regardless of the portfolio size.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:querycount")
+public class PortfolioServiceQueryCountTests {
+
+	private static final String[] SYMBOLS = {"AAPL", "AMZN", "BIDU", "CSCO", "EBAY", "FB", "FBEN", "GOOGL",
+			"INTC", "MSFT", "NFLX", "NVDA", "PEP", "PYPL"};
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	private long clientId;
+
+	@Before
+	public void createClient() {
+		clientId = portfolioService.addNewClientPortfolio(portfolio(SYMBOLS.length, 1));
+	}
+
+	@Test
+	public void readsIssueASingleQuery() {
+		assertStatements(1, () -> portfolioService.getPortfolioValue(clientId));
+		assertStatements(1, () -> portfolioService.mostPerformingStock(clientId, 5));
+		assertStatements(1, () -> portfolioService.mostStableStock(clientId, 5));
+		assertStatements(1, () -> portfolioService.bestStock(clientId));
+		assertStatements(1, () -> portfolioService.bestStocks(clientId, 3));
+
+		LocalDate from = LocalDate.of(2018, 1, 2);
+		LocalDate to = LocalDate.of(2018, 1, 6);
+		assertStatements(1, () -> portfolioService.getPortfolioValueAt(clientId, to));
+		assertStatements(1, () -> portfolioService.mostPerformingStock(clientId, from, to));
+		assertStatements(1, () -> portfolioService.mostStableStock(clientId, from, to));
+	}
+
+	@Test
+	public void updateLoadsOnceAndAppliesInBulk() {
+		List<Stock> stocksToUpdate = portfolio(SYMBOLS.length, 2);
+		stocksToUpdate.get(0).setStockAmount(0);
+		stocksToUpdate.get(1).setStockAmount(0);
+
+		//loading the portfolio, one bulk update, one bulk delete and the increment of the client's version
+		assertStatements(4, () -> portfolioService.updateClientPortfolio(clientId, stocksToUpdate));
+	}
+
+	@Test
+	public void replaceDeletesInBulk() {
+		//the existence check, one bulk delete, one insert batch and the increment of the client's version,
+		//plus a stocks sequence call when the pre-allocated block of ids runs out
+		SqlStatementCounter.reset();
+		portfolioService.replaceClientPortfolio(clientId, portfolio(SYMBOLS.length, 3));
+		assertTrue(SqlStatementCounter.count() <= 5);
+	}
+
+	@Test
+	public void valueIsCachedUntilThePortfolioChanges() {
+		double value = portfolioService.getPortfolioValue(clientId);
+		assertStatements(0, () -> portfolioService.getPortfolioValue(clientId));
+
+		List<Stock> stocksToUpdate = portfolio(1, 2);
+		portfolioService.updateClientPortfolio(clientId, stocksToUpdate);
+		assertStatements(1, () -> assertTrue(portfolioService.getPortfolioValue(clientId) > value));
+	}
+
+	@Test
+	public void invalidPortfoliosAreRejectedBeforeAnyWrite() {
+		List<List<Stock>> portfolios = new ArrayList<>();
+		portfolios.add(portfolio(2, 1));
+		portfolios.add(portfolio(2, 0));
+		SqlStatementCounter.reset();
+		try {
+			portfolioService.addNewClientPortfolios(portfolios);
+			fail("expected the portfolios to be rejected");
+		} catch (PortfolioValidationException e) {
+			assertEquals(0, SqlStatementCounter.count());
+		}
+	}
+
+	private static void assertStatements(int expectedStatements, Runnable serviceCall) {
+		SqlStatementCounter.reset();
+		serviceCall.run();
+		assertEquals(expectedStatements, SqlStatementCounter.count());
+	}
+
+	private static List<Stock> portfolio(int size, int amount) {
+		List<Stock> stocks = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			Stock stock = new Stock(SYMBOLS[i]);
+			stock.setStockAmount(amount);
+			stocks.add(stock);
+		}
+		return stocks;
+	}
+}
@@ -0,0 +1,99 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.monitoring.SqlStatementCounter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that the bulk valuation matches valuing every client on its own, pages through the clients
+ * with a fixed number of queries per page, and reports the clients it cannot value.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:valuation", "portfolio.valuation.page-size=1000"})
+public class PortfolioValuationServiceTests {
+
+	private static final String[] SYMBOLS = {"AAPL", "AMZN", "BIDU", "CSCO", "EBAY", "FB", "FBEN", "GOOGL",
+			"INTC", "MSFT", "NFLX", "NVDA", "PEP", "PYPL"};
+
+	//enough positions for a page to be valued on the fork/join pool
+	private static final int CLIENTS = 1500;
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private PortfolioValuationService portfolioValuationService;
+
+	private List<Long> clientIds;
+
+	@Before
+	public void createClients() {
+		List<List<Stock>> portfolios = new ArrayList<>();
+		for (int i = 0; i < CLIENTS; i++) {
+			portfolios.add(portfolio(i));
+		}
+		clientIds = portfolioService.addNewClientPortfolios(portfolios);
+	}
+
+	@Test
+	public void valuesEveryClientLikeASingleValuation() {
+		Map<Long, Double> values = new HashMap<>();
+		SqlStatementCounter.reset();
+		portfolioValuationService.valueAllPortfolios(result -> values.put(result.getClientId(), result.getValue()));
+
+		//a query of ids and a query of positions for every page, and a last query of ids when the last page was full
+		int pages = (values.size() + 999) / 1000;
+		assertTrue(SqlStatementCounter.count() <= 2 * pages + 1);
+		for (long clientId : clientIds.subList(0, 50)) {
+			assertEquals(portfolioService.getPortfolioValue(clientId), values.get(clientId), 1e-9);
+		}
+		assertEquals(portfolioService.getPortfolioValue(clientIds.get(CLIENTS - 1)),
+				values.get(clientIds.get(CLIENTS - 1)), 1e-9);
+	}
+
+	@Test
+	public void reportsEveryRequestedClientInOrder() {
+		long missingClientId = clientIds.get(CLIENTS - 1) + 1000;
+		List<Long> requested = Arrays.asList(clientIds.get(1), missingClientId, -1L, clientIds.get(0), clientIds.get(1));
+		List<PortfolioValuationResult> results = new ArrayList<>();
+
+		SqlStatementCounter.reset();
+		portfolioValuationService.valuePortfolios(requested.iterator(), results::add);
+		assertEquals(1, SqlStatementCounter.count());
+
+		assertEquals(requested.size(), results.size());
+		for (int i = 0; i < requested.size(); i++) {
+			assertEquals(requested.get(i), results.get(i).getClientId());
+		}
+		assertEquals(portfolioService.getPortfolioValue(clientIds.get(1)), results.get(0).getValue(), 1e-9);
+		assertEquals(results.get(0).getValue(), results.get(4).getValue());
+		assertNull(results.get(1).getValue());
+		assertEquals("client id '" + missingClientId + "' does not exist", results.get(1).getError());
+		assertEquals("client id '-1' is not valid", results.get(2).getError());
+	}
+
+	private static List<Stock> portfolio(int client) {
+		List<Stock> stocks = new ArrayList<>();
+		for (int i = 0; i < SYMBOLS.length; i++) {
+			Stock stock = new Stock(SYMBOLS[(client + i) % SYMBOLS.length]);
+			stock.setStockAmount(1 + (client + i) % 7);
+			stocks.add(stock);
+		}
+		return stocks;
+	}
+}
@@ -0,0 +1,118 @@
+package com.fyber.junior.developer.assignment.stock.business.services;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.model.projection.StockPosition;
+import com.fyber.junior.developer.assignment.stock.monitoring.SqlStatementCounter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that the position index follows the writes of the portfolios, so the reads need no query,
+ * and that it keeps its positions compact while the portfolios change.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:positionindex",
+		"portfolio.position-index.enabled=true"})
+public class PositionIndexTests {
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private PortfolioValuationService portfolioValuationService;
+
+	@Autowired
+	private PositionIndex positionIndex;
+
+	@Autowired
+	private PriceHistoryStore priceHistoryStore;
+
+	@Test
+	public void readsFollowTheWritesWithoutQueries() {
+		List<Stock> stocks = new ArrayList<>();
+		stocks.add(stock("AMZN", 2));
+		stocks.add(stock("FB", 3));
+		stocks.add(stock("GOOGL", 1));
+		long clientId = portfolioService.addNewClientPortfolio(stocks);
+
+		SqlStatementCounter.reset();
+		assertEquals(2 * price("AMZN") + 3 * price("FB") + price("GOOGL"),
+				portfolioService.getPortfolioValue(clientId), 1e-6);
+		assertEquals(0, SqlStatementCounter.count());
+
+		List<Stock> stocksToUpdate = new ArrayList<>();
+		stocksToUpdate.add(stock("AMZN", 0));
+		stocksToUpdate.add(stock("GOOGL", 4));
+		portfolioService.updateClientPortfolio(clientId, stocksToUpdate);
+		assertPositions(positionIndex.positions(clientId), "FB", 3, "GOOGL", 4);
+
+		List<PortfolioValuationResult> results = new ArrayList<>();
+		SqlStatementCounter.reset();
+		portfolioValuationService.valuePortfolios(Collections.singletonList(clientId).iterator(), results::add);
+		assertEquals(0, SqlStatementCounter.count());
+		assertEquals(3 * price("FB") + 4 * price("GOOGL"), results.get(0).getValue(), 1e-6);
+
+		List<Stock> newStocks = new ArrayList<>();
+		newStocks.add(stock("MSFT", 5));
+		portfolioService.replaceClientPortfolio(clientId, newStocks);
+		assertPositions(positionIndex.positions(clientId), "MSFT", 5);
+		assertNull(positionIndex.positions(clientId + 1000));
+	}
+
+	@Test
+	public void growingPortfoliosKeepTheIndexCompact() {
+		long firstClientId = 1_000_000;
+		for (int round = 1; round <= 20; round++) {
+			for (long clientId = firstClientId; clientId < firstClientId + 500; clientId++) {
+				List<StockPosition> positions = new ArrayList<>();
+				for (int i = 0; i < round; i++) {
+					positions.add(new StockPosition(clientId, "SYMBOL" + i, round));
+				}
+				positionIndex.put(clientId, positions);
+			}
+		}
+
+		List<StockPosition> positions = positionIndex.positions(firstClientId + 499);
+		assertEquals(20, positions.size());
+		assertEquals("SYMBOL19", positions.get(19).getStockSymbol());
+		assertEquals(20, positions.get(19).getStockAmount());
+
+		//at most twice the positions in use, together with the table of the clients
+		int positionCount = positionIndex.positionCount();
+		assertTrue(positionCount >= 500 * 20);
+		assertTrue(positionIndex.offHeapBytes() <= 2L * positionCount * PositionIndex.POSITION_BYTES);
+	}
+
+	private static void assertPositions(List<StockPosition> positions, Object... expected) {
+		assertEquals(expected.length / 2, positions.size());
+		for (int i = 0; i < positions.size(); i++) {
+			assertEquals(expected[i * 2], positions.get(i).getStockSymbol());
+			assertEquals(expected[i * 2 + 1], positions.get(i).getStockAmount());
+		}
+	}
+
+	private double price(String symbol) {
+		PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+		return priceHistory.latestClose(priceHistory.indexOf(symbol));
+	}
+
+	private static Stock stock(String symbol, int amount) {
+		Stock stock = new Stock(symbol);
+		stock.setStockAmount(amount);
+		return stock;
+	}
+}
@@ -0,0 +1,94 @@
+package com.fyber.junior.developer.assignment.stock.business.validator;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.SupportedStocks;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.BadArgumentException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation.Reason;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PortfolioValidatorTests {
+
+	private final SupportedStocks supportedStocks = new SupportedStocks(Arrays.asList("AAPL", "AMZN", "FB", "GOOGL", "MSFT"));
+
+	@Test
+	public void acceptsValidPortfolio() {
+		PortfolioValidator.validatePortfolio(portfolio("AAPL", 1, "FB", 2, "MSFT", 3), false, supportedStocks);
+	}
+
+	@Test
+	public void rejectsUnsupportedStock() {
+		assertRejected(portfolio("AAPL", 1, "NFLX", 2), "The stock 'NFLX' is not supported");
+	}
+
+	@Test
+	public void rejectsRepeatingStock() {
+		assertRejected(portfolio("AAPL", 1, "FB", 2, "AAPL", 3), "The stock 'AAPL' appears more than once");
+	}
+
+	@Test
+	public void rejectsRepeatingStockAfterAnInvalidAmount() {
+		try {
+			PortfolioValidator.validatePortfolio(portfolio("AAPL", 0, "FB", 2, "AAPL", 3), false, supportedStocks);
+			fail("expected the portfolio to be rejected");
+		} catch (PortfolioValidationException e) {
+			List<StockViolation> violations = e.getViolations();
+			assertEquals(2, violations.size());
+			assertEquals(Reason.INVALID_AMOUNT, violations.get(0).getReason());
+			assertEquals(Reason.REPEATING, violations.get(1).getReason());
+			assertEquals("AAPL", violations.get(1).getStockSymbol());
+		}
+	}
+
+	@Test
+	public void rejectsEmptyEntry() {
+		List<Stock> stocks = portfolio("AAPL", 1);
+		stocks.add(null);
+		assertRejected(stocks, "A stock is missing, the list holds an empty entry");
+	}
+
+	@Test
+	public void collectsAllViolations() {
+		try {
+			PortfolioValidator.validatePortfolio(portfolio("AAPL", 0, "fb", 1, "NFLX", 2, "MSFT", 1, "MSFT", 1), false, supportedStocks);
+			fail("expected the portfolio to be rejected");
+		} catch (PortfolioValidationException e) {
+			List<StockViolation> violations = e.getViolations();
+			assertEquals(4, violations.size());
+			assertEquals(Reason.INVALID_AMOUNT, violations.get(0).getReason());
+			assertEquals(Reason.INVALID_SYMBOL, violations.get(1).getReason());
+			assertEquals(Reason.NOT_SUPPORTED, violations.get(2).getReason());
+			assertEquals(Reason.REPEATING, violations.get(3).getReason());
+		}
+
+		//the seen stocks of a rejected portfolio must not leak into the next validation
+		PortfolioValidator.validatePortfolio(portfolio("MSFT", 1), false, supportedStocks);
+	}
+
+	private void assertRejected(List<Stock> stocks, String expectedMessage) {
+		try {
+			PortfolioValidator.validatePortfolio(stocks, false, supportedStocks);
+			fail("expected the portfolio to be rejected");
+		} catch (BadArgumentException e) {
+			assertEquals(expectedMessage, e.getMessage());
+		}
+	}
+
+	private static List<Stock> portfolio(Object... symbolsAndAmounts) {
+		List<Stock> stocks = new ArrayList<>();
+		for (int i = 0; i < symbolsAndAmounts.length; i += 2) {
+			Stock stock = new Stock((String) symbolsAndAmounts[i]);
+			stock.setStockAmount((Integer) symbolsAndAmounts[i + 1]);
+			stocks.add(stock);
+		}
+		return stocks;
+	}
+}
@@ -0,0 +1,117 @@
+package com.fyber.junior.developer.assignment.stock.model.datasource;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistory;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceHistoryStore;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.EntityNotFoundException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Asserts that the writes go to the primary and the reads go to the replica, with two in memory databases
+ * and no replication between them, so every row is found only in the database it was sent to.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:primary",
+		"portfolio.datasource.replica.url=jdbc:h2:mem:replica"})
+public class ReadReplicaRoutingTests {
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private PriceHistoryStore priceHistoryStore;
+
+	@Autowired
+	private ReadWriteRoutingDataSource dataSource;
+
+	private DataSource primaryDataSource;
+	private DataSource replicaDataSource;
+
+	private long clientId;
+
+	@Before
+	public void createClient() {
+		primaryDataSource = dataSource.getPrimaryDataSource();
+		replicaDataSource = dataSource.getReplicaDataSource();
+		new ResourceDatabasePopulator(new ClassPathResource("schema-h2.sql")).execute(replicaDataSource);
+		clientId = portfolioService.addNewClientPortfolio(portfolio("AMZN", 2));
+	}
+
+	@Test
+	public void writesGoToThePrimary() {
+		assertEquals(1, countStocks(primaryDataSource));
+		assertEquals(0, countStocks(replicaDataSource));
+	}
+
+	@Test
+	public void readsGoToTheReplica() {
+		try {
+			portfolioService.mostStableStock(clientId, 5);
+			fail("The portfolio was read from the primary");
+		} catch (EntityNotFoundException e) {
+			//the client was not replicated yet
+		}
+
+		replicate("AMZN", 2);
+		assertEquals("AMZN", portfolioService.mostStableStock(clientId, 5));
+		assertEquals(2 * latestClose("AMZN"), portfolioService.getPortfolioValueAt(clientId, LocalDate.now()), 1e-9);
+	}
+
+	@Test
+	public void cachedValuesAreLoadedFromThePrimary() {
+		replicate("AMZN", 2);
+		assertEquals(2 * latestClose("AMZN"), portfolioService.getPortfolioValue(clientId), 1e-9);
+		assertEquals(2 * latestClose("AMZN"), portfolioService.getLivePortfolioValue(clientId), 1e-9);
+
+		//the replica lags behind the update, the invalidated values are loaded again from the primary
+		portfolioService.updateClientPortfolio(clientId, portfolio("AMZN", 5));
+		assertEquals(5 * latestClose("AMZN"), portfolioService.getPortfolioValue(clientId), 1e-9);
+		assertEquals(5 * latestClose("AMZN"), portfolioService.getLivePortfolioValue(clientId), 1e-9);
+		assertEquals(2 * latestClose("AMZN"), portfolioService.getPortfolioValueAt(clientId, LocalDate.now()), 1e-9);
+	}
+
+	/**
+	 * Copies the client to the replica, with a single stock.
+	 */
+	private void replicate(String symbol, int amount) {
+		JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+		replica.update("INSERT INTO CLIENTS (CLIENT_ID) VALUES (?)", clientId);
+		replica.update("INSERT INTO STOCKS (STOCK_ID, STOCK_SYMBOL, STOCK_AMOUNT, CLIENT_ID) VALUES (?, ?, ?, ?)",
+				clientId, symbol, amount, clientId);
+	}
+
+	private double latestClose(String symbol) {
+		PriceHistory priceHistory = priceHistoryStore.getPriceHistory();
+		return priceHistory.latestClose(priceHistory.indexOf(symbol));
+	}
+
+	private int countStocks(DataSource dataSource) {
+		return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM STOCKS WHERE CLIENT_ID = ?",
+				Integer.class, clientId);
+	}
+
+	private static List<Stock> portfolio(String symbol, int amount) {
+		Stock stock = new Stock(symbol);
+		stock.setStockAmount(amount);
+		List<Stock> stocks = new ArrayList<>();
+		stocks.add(stock);
+		return stocks;
+	}
+}
@@ -0,0 +1,80 @@
+package com.fyber.junior.developer.assignment.stock.model.repository;
+
+import com.fyber.junior.developer.assignment.stock.model.entity.Client;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that the bulk amount update changes exactly the given stocks, whatever their number,
+ * with a bounded number of distinct statements.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:stockrepository",
+		"spring.jpa.properties.hibernate.generate_statistics=true"})
+public class StockRepositoryTests {
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private StockRepository stockRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	public void updatesEveryGivenStockInBoundedShapes() {
+		long clientId = clientRepository.save(new Client()).getClientId();
+		List<Stock> stocks = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			Stock stock = new Stock("AMZN");
+			stock.setClientId(clientId);
+			stock.setStockAmount(1);
+			stocks.add(stock);
+		}
+		stocks = stockRepository.saveAll(stocks);
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		//every size from 1 to 200 updates the first stocks, the rest keep their amount
+		for (int size = 1; size <= 200; size++) {
+			Map<Long, Integer> newAmounts = new LinkedHashMap<>();
+			for (int i = 0; i < size; i++) {
+				newAmounts.put(stocks.get(i).getStockId(), size);
+			}
+			int updated = transactionTemplate.execute(status -> stockRepository.updateStockAmounts(newAmounts));
+			assertEquals(size, updated);
+		}
+		assertEquals(0, transactionTemplate.execute(status -> stockRepository.updateStockAmounts(new LinkedHashMap<>()))
+				.intValue());
+
+		for (int i = 0; i < stocks.size(); i++) {
+			Stock stock = stockRepository.findById(stocks.get(i).getStockId()).get();
+			assertEquals(i < 200 ? 200 : 1, stock.getStockAmount());
+		}
+
+		//the powers of two up to the largest chunk
+		assertTrue(statistics.getQueries().length <= 8);
+	}
+}
@@ -0,0 +1,57 @@
+package com.fyber.junior.developer.assignment.stock.monitoring;
+
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics.ServiceCall;
+import com.fyber.junior.developer.assignment.stock.monitoring.PortfolioMetrics.Stage;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.PortfolioValidationException;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation;
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.StockViolation.Reason;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PortfolioMetricsTests {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PortfolioMetrics portfolioMetrics = new PortfolioMetrics(meterRegistry);
+
+	@Test
+	public void timesCallsAndTheirStages() {
+		for (int i = 0; i < 3; i++) {
+			ServiceCall call = portfolioMetrics.start("getPortfolioValue");
+			call.stage(Stage.VALIDATE);
+			call.stage(Stage.DB_LOAD);
+			call.end();
+		}
+
+		assertEquals(3, meterRegistry.get("portfolio.service").tag("method", "getPortfolioValue").timer().count());
+		assertEquals(3, meterRegistry.get("portfolio.stage").tags("method", "getPortfolioValue", "stage", "validate")
+				.timer().count());
+		assertEquals(3, meterRegistry.get("portfolio.stage").tags("method", "getPortfolioValue", "stage", "db.load")
+				.timer().count());
+
+		//stages that were never reached are not registered
+		assertNull(meterRegistry.find("portfolio.stage").tag("stage", "compute").timer());
+	}
+
+	@Test
+	public void countsValidationFailuresByReason() {
+		portfolioMetrics.validationFailed(new PortfolioValidationException(Arrays.asList(
+				new StockViolation(Reason.NOT_SUPPORTED, "NFLX", 1),
+				new StockViolation(Reason.NOT_SUPPORTED, "TSLA", 1),
+				new StockViolation(Reason.INVALID_AMOUNT, "FB", 0))));
+		portfolioMetrics.validationFailed(PortfolioMetrics.EMPTY_PORTFOLIO);
+
+		assertEquals(2.0, failures("not_supported"), 0.0);
+		assertEquals(1.0, failures("invalid_amount"), 0.0);
+		assertEquals(1.0, failures(PortfolioMetrics.EMPTY_PORTFOLIO), 0.0);
+	}
+
+	private double failures(String reason) {
+		return meterRegistry.get("portfolio.validation.failures").tag("reason", reason).counter().count();
+	}
+}
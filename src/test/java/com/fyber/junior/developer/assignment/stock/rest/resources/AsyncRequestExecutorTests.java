@@ -0,0 +1,66 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fyber.junior.developer.assignment.stock.rest.Exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AsyncRequestExecutorTests {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AsyncRequestExecutor asyncRequestExecutor = new AsyncRequestExecutor(meterRegistry, true, 1, 1);
+
+	@After
+	public void shutdown() {
+		asyncRequestExecutor.shutdown();
+	}
+
+	@Test
+	public void runsTheRequestsOnThePool() throws Exception {
+		CompletableFuture<String> result = asyncRequestExecutor.supply(() -> Thread.currentThread().getName());
+
+		assertEquals("portfolio-async-1", result.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void rejectsTheRequestsWhenThePoolIsSaturated() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		//the single thread is busy and the single queue slot is taken
+		CompletableFuture<Integer> busy = asyncRequestExecutor.supply(() -> {
+			running.countDown();
+			await(release);
+			return 1;
+		});
+		running.await(5, TimeUnit.SECONDS);
+		CompletableFuture<Integer> queued = asyncRequestExecutor.supply(() -> 2);
+
+		try {
+			asyncRequestExecutor.supply(() -> 3);
+			fail("A request was accepted by a saturated pool");
+		} catch (ServiceUnavailableException e) {
+			assertEquals(1.0, meterRegistry.get("portfolio.async.rejected").counter().count(), 0.0);
+		}
+
+		release.countDown();
+		assertEquals(1, (int) busy.get(5, TimeUnit.SECONDS));
+		assertEquals(2, (int) queued.get(5, TimeUnit.SECONDS));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
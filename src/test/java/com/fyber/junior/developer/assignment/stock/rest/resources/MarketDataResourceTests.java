@@ -0,0 +1,69 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that a batch of ticks broken in the middle is answered with the amounts of the ticks ingested before it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.datasource.url=jdbc:h2:mem:ticks")
+public class MarketDataResourceTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private LivePriceBook livePriceBook;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void brokenTicksAreAnsweredWithWhatWasIngested() throws IOException {
+		assertBrokenAfterTheFirstTick("{\"symbol\":\"AMZN\",\"price\":1500}\n{\"symbol\":\"FB\",\"price\":}\n");
+		assertEquals(1500, livePriceBook.latestPrice("AMZN"), 0);
+
+		assertBrokenAfterTheFirstTick("{\"symbol\":\"AMZN\",\"price\":1600}\n{\"symbol\":\"FB\",\"price\":\"high\"}\n");
+		assertEquals(1600, livePriceBook.latestPrice("AMZN"), 0);
+	}
+
+	private void assertBrokenAfterTheFirstTick(String ticks) throws IOException {
+		URL url = new URL("http://localhost:" + port + "/api/market/ticks");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			connection.setRequestMethod("POST");
+			connection.setRequestProperty("Content-Type", "application/x-ndjson");
+			connection.setDoOutput(true);
+			try (OutputStream body = connection.getOutputStream()) {
+				body.write(ticks.getBytes(StandardCharsets.UTF_8));
+			}
+
+			assertEquals(406, connection.getResponseCode());
+			JsonNode error = objectMapper.readTree(connection.getErrorStream());
+			assertTrue(error.get("message").asText().startsWith("Malformed ticks input"));
+			assertEquals(1, error.get("accepted").asLong());
+			assertEquals(0, error.get("stale").asLong());
+			assertEquals(0, error.get("rejected").asLong());
+		} finally {
+			connection.disconnect();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that an import streams back a result for every portfolio, and that a malformed portfolio in the middle
+ * of the input is answered with what was imported before it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:import",
+		"portfolio.import.chunk-size=2"})
+public class PortfolioImportTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void everyPortfolioOfAValidStreamIsReported() throws IOException {
+		HttpURLConnection connection = post(
+				"[{\"stockSymbol\":\"AMZN\",\"stockAmount\":2}]",
+				"[{\"stockSymbol\":\"NFLX\",\"stockAmount\":1},{\"stockSymbol\":\"NFLX\",\"stockAmount\":1}]",
+				"[{\"stockSymbol\":\"FB\",\"stockAmount\":1}]");
+		try {
+			assertEquals(200, connection.getResponseCode());
+			List<JsonNode> results = lines(connection.getInputStream());
+			assertEquals(3, results.size());
+			for (int index = 0; index < results.size(); index++) {
+				assertEquals(index, results.get(index).get("index").asLong());
+			}
+			assertEquals("The stock 'NFLX' appears more than once", results.get(1).get("error").asText());
+			assertTrue(portfolioService.getPortfolioValue(results.get(0).get("clientId").asLong()) > 0);
+			assertTrue(portfolioService.getPortfolioValue(results.get(2).get("clientId").asLong()) > 0);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void portfolioWithAnEmptyEntryIsRejectedAlone() throws IOException {
+		HttpURLConnection connection = post(
+				"[{\"stockSymbol\":\"AMZN\",\"stockAmount\":2}]",
+				"[{\"stockSymbol\":\"FB\",\"stockAmount\":1},null]",
+				"[{\"stockSymbol\":\"GOOGL\",\"stockAmount\":1}]");
+		try {
+			assertEquals(200, connection.getResponseCode());
+			List<JsonNode> results = lines(connection.getInputStream());
+			assertEquals(3, results.size());
+			assertEquals("A stock is missing, the list holds an empty entry", results.get(1).get("error").asText());
+			assertTrue(portfolioService.getPortfolioValue(results.get(0).get("clientId").asLong()) > 0);
+			assertTrue(portfolioService.getPortfolioValue(results.get(2).get("clientId").asLong()) > 0);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void malformedPortfolioIsAnsweredWithWhatWasImported() throws IOException {
+		HttpURLConnection connection = post(
+				"[{\"stockSymbol\":\"AMZN\",\"stockAmount\":2}]",
+				"[{\"stockSymbol\":\"FB\",\"stockAmount\":1}]",
+				"[{\"stockSymbol\":\"GOOGL\",\"stockAmount\":1}]",
+				"[{\"stockSymbol\":\"MSFT\",\"stockAmount\":\"many\"}]",
+				"[{\"stockSymbol\":\"NFLX\",\"stockAmount\":1}]");
+		try {
+			assertEquals(406, connection.getResponseCode());
+			JsonNode error = objectMapper.readTree(connection.getErrorStream());
+			assertTrue(error.get("message").asText().startsWith("Malformed portfolios input"));
+			assertEquals(3, error.get("index").asLong());
+			assertEquals(3, error.get("importedCount").asLong());
+
+			//the portfolio read after the last full chunk was imported too, as the last client
+			long lastClientId = error.get("lastClientId").asLong();
+			List<Stock> googl = new ArrayList<>();
+			googl.add(stock("GOOGL", 1));
+			assertEquals(portfolioService.getPortfolioValue(portfolioService.addNewClientPortfolio(googl)),
+					portfolioService.getPortfolioValue(lastClientId), 1e-6);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private HttpURLConnection post(String... portfolios) throws IOException {
+		URL url = new URL("http://localhost:" + port + "/api/portfolio/import");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", "application/x-ndjson");
+		connection.setDoOutput(true);
+		try (OutputStream body = connection.getOutputStream()) {
+			body.write(String.join("\n", portfolios).getBytes(StandardCharsets.UTF_8));
+		}
+		return connection;
+	}
+
+	private List<JsonNode> lines(InputStream body) throws IOException {
+		List<JsonNode> lines = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(objectMapper.readTree(line));
+			}
+		}
+		return lines;
+	}
+
+	private static Stock stock(String symbol, int amount) {
+		Stock stock = new Stock(symbol);
+		stock.setStockAmount(amount);
+		return stock;
+	}
+}
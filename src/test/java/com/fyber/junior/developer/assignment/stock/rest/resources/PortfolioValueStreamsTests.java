@@ -0,0 +1,156 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fyber.junior.developer.assignment.stock.business.marketdata.LivePriceBook;
+import com.fyber.junior.developer.assignment.stock.business.marketdata.PriceTick;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that a portfolio value stream is sent the value when it opens and after it changed, coalescing
+ * a burst of changes, and that the streams beyond the bound are rejected.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:streams",
+		"portfolio.streams.max-subscribers=2",
+		"portfolio.streams.min-interval-ms=500"})
+public class PortfolioValueStreamsTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private LivePriceBook livePriceBook;
+
+	private long clientId;
+
+	@Before
+	public void createClient() {
+		List<Stock> stocks = new ArrayList<>();
+		stocks.add(stock("AMZN", 2));
+		stocks.add(stock("FB", 3));
+		clientId = portfolioService.addNewClientPortfolio(stocks);
+	}
+
+	@Test
+	public void streamIsSentTheValueAfterEveryChange() throws IOException {
+		HttpURLConnection connection = open(clientId);
+		try (BufferedReader events = reader(connection)) {
+			assertEquals(portfolioService.getLivePortfolioValue(clientId), nextValue(events), 1e-6);
+
+			livePriceBook.accept(new PriceTick("AMZN", 100, System.currentTimeMillis()));
+			livePriceBook.accept(new PriceTick("FB", 10, System.currentTimeMillis()));
+			awaitValue(events, 230);
+
+			List<Stock> update = new ArrayList<>();
+			update.add(stock("AMZN", 0));
+			portfolioService.updateClientPortfolio(clientId, update);
+			awaitValue(events, 30);
+
+			//a burst of ticks is coalesced into a few updates, the last of them holding the last price
+			for (int i = 1; i <= 1000; i++) {
+				livePriceBook.accept(new PriceTick("FB", i, System.currentTimeMillis()));
+			}
+			int updates = awaitValue(events, 3000);
+			assertTrue("" + updates, updates < 10);
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void unknownClientIsNotStreamed() throws IOException {
+		HttpURLConnection connection = open(clientId + 1000);
+		try {
+			assertEquals(404, connection.getResponseCode());
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	//a closed stream is removed only when it is next written to, so the bound is asserted on a fresh context
+	@Test
+	@DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+	public void streamsBeyondTheBoundAreRejected() throws IOException {
+		HttpURLConnection first = open(clientId);
+		HttpURLConnection second = open(clientId);
+		HttpURLConnection third = open(clientId);
+		try {
+			assertEquals(200, first.getResponseCode());
+			assertEquals(200, second.getResponseCode());
+			assertEquals(503, third.getResponseCode());
+		} finally {
+			first.disconnect();
+			second.disconnect();
+			third.disconnect();
+		}
+	}
+
+	private HttpURLConnection open(long clientId) throws IOException {
+		URL url = new URL("http://localhost:" + port + "/api/portfolio/value/" + clientId + "/stream");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestProperty("Accept", "text/event-stream");
+		connection.setReadTimeout(5000);
+		connection.getResponseCode();
+		return connection;
+	}
+
+	private static BufferedReader reader(HttpURLConnection connection) throws IOException {
+		return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the amount of values read up to the expected one
+	 */
+	private static int awaitValue(BufferedReader events, double expected) throws IOException {
+		int updates = 1;
+		while (Math.abs(nextValue(events) - expected) > 1e-6) {
+			updates++;
+		}
+		return updates;
+	}
+
+	private static double nextValue(BufferedReader events) throws IOException {
+		try {
+			String line;
+			while ((line = events.readLine()) != null) {
+				if (line.startsWith("data:")) {
+					return Double.parseDouble(line.substring("data:".length()));
+				}
+			}
+		} catch (SocketTimeoutException e) {
+			throw new AssertionError("no value was sent", e);
+		}
+		throw new AssertionError("the stream was closed");
+	}
+
+	private static Stock stock(String symbol, int amount) {
+		Stock stock = new Stock(symbol);
+		stock.setStockAmount(amount);
+		return stock;
+	}
+}
@@ -0,0 +1,104 @@
+package com.fyber.junior.developer.assignment.stock.rest.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fyber.junior.developer.assignment.stock.business.services.PortfolioService;
+import com.fyber.junior.developer.assignment.stock.model.entity.Stock;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that malformed client ids are answered with a 406 before any result was sent,
+ * and with a last error line once the results are streamed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:values",
+		"portfolio.valuation.page-size=10"})
+public class PortfolioValuesTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void malformedClientIdIsRejected() throws IOException {
+		HttpURLConnection connection = post("[1, 2, x]");
+		try {
+			assertEquals(406, connection.getResponseCode());
+			JsonNode error = objectMapper.readTree(connection.getErrorStream());
+			assertTrue(error.get("message").asText().startsWith("Malformed client ids input"));
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	@Test
+	public void malformedClientIdAfterStreamedResultsIsTheLastLine() throws IOException {
+		List<Stock> stocks = new ArrayList<>();
+		Stock stock = new Stock("AMZN");
+		stock.setStockAmount(2);
+		stocks.add(stock);
+		long clientId = portfolioService.addNewClientPortfolio(stocks);
+
+		//enough results to fill the response buffer, so they are sent before the malformed id is read
+		StringBuilder clientIds = new StringBuilder("[");
+		for (int i = 0; i < 1000; i++) {
+			clientIds.append(clientId).append(", ");
+		}
+		HttpURLConnection connection = post(clientIds.append("x]").toString());
+		try {
+			assertEquals(200, connection.getResponseCode());
+			List<String> lines = new ArrayList<>();
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+			}
+			assertEquals(1001, lines.size());
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(clientId, objectMapper.readTree(lines.get(i)).get("clientId").asLong());
+			}
+			JsonNode error = objectMapper.readTree(lines.get(1000));
+			assertTrue(error.get("message").asText().startsWith("Malformed client ids input"));
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private HttpURLConnection post(String clientIds) throws IOException {
+		URL url = new URL("http://localhost:" + port + "/api/portfolio/values");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", "application/json");
+		connection.setDoOutput(true);
+		try (OutputStream body = connection.getOutputStream()) {
+			body.write(clientIds.getBytes(StandardCharsets.UTF_8));
+		}
+		return connection;
+	}
+}